@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf.cli;
+
+import static java.lang.String.format;
+
+import java.nio.file.Path;
+
+/**
+ * Command-line options of {@link ProtobufCorpusGenerator}.
+ */
+final class CorpusGeneratorOptions {
+
+    static final String USAGE = String.join(
+        System.lineSeparator(),
+        "Usage: java -jar easy-random-protobuf-cli.jar --message <name> [options]",
+        "  --message <name>           class name of a generated message, or full name of a message type",
+        "                             of the descriptor set",
+        "  --descriptor-set <file>    descriptor set including imports, e.g. from protoc --include_imports",
+        "  --count <count>            number of messages to generate (default: 1000)",
+        "  --seed <seed>              seed of the generation (default: 123)",
+        "  --threads <threads>        number of generation threads (default: number of processors)",
+        "  --format <format>          delimited (length-delimited binary messages) or json (JSON lines)",
+        "                             (default: delimited)",
+        "  --output <file>            file to write the corpus to (default: standard output)"
+    );
+
+    private String message;
+    private Path descriptorSet;
+    private long count = 1000;
+    private long seed = 123L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private OutputFormat format = OutputFormat.DELIMITED;
+    private Path output;
+
+    private CorpusGeneratorOptions() {}
+
+    static CorpusGeneratorOptions parse(String... args) {
+        CorpusGeneratorOptions options = new CorpusGeneratorOptions();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException(format("Missing value of option %s", args[i]));
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--message" -> options.message = value;
+                case "--descriptor-set" -> options.descriptorSet = Path.of(value);
+                case "--count" -> options.count = parseLong(args[i], value, 0, Long.MAX_VALUE);
+                case "--seed" -> options.seed = parseLong(args[i], value, Long.MIN_VALUE, Long.MAX_VALUE);
+                case "--threads" -> options.threads = (int) parseLong(args[i], value, 1, Integer.MAX_VALUE);
+                case "--format" -> options.format = OutputFormat.fromName(value);
+                case "--output" -> options.output = Path.of(value);
+                default -> throw new IllegalArgumentException(format("Unknown option %s", args[i]));
+            }
+        }
+        if (options.message == null) {
+            throw new IllegalArgumentException("Option --message is required");
+        }
+        return options;
+    }
+
+    private static long parseLong(String option, String value, long min, long max) {
+        long parsedValue;
+        try {
+            parsedValue = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("Value of option %s must be a number: %s", option, value));
+        }
+        if (parsedValue < min || parsedValue > max) {
+            throw new IllegalArgumentException(format("Value of option %s is out of range: %s", option, value));
+        }
+        return parsedValue;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    Path getDescriptorSet() {
+        return descriptorSet;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    OutputFormat getFormat() {
+        return format;
+    }
+
+    Path getOutput() {
+        return output;
+    }
+}
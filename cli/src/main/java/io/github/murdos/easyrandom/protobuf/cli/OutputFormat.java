@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf.cli;
+
+import java.util.Arrays;
+
+/**
+ * Format of generated corpora.
+ */
+enum OutputFormat {
+    /**
+     * Length-delimited binary messages, as written by {@link com.google.protobuf.MessageLite#writeDelimitedTo}.
+     */
+    DELIMITED("delimited"),
+    /**
+     * One proto3 JSON message per line.
+     */
+    JSON_LINES("json");
+
+    private final String name;
+
+    OutputFormat(String name) {
+        this.name = name;
+    }
+
+    static OutputFormat fromName(String name) {
+        return Arrays
+            .stream(values())
+            .filter(format -> format.name.equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown format: " + name));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
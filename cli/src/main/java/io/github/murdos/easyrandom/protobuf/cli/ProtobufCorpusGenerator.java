@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf.cli;
+
+import static java.lang.String.format;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Message;
+import io.github.murdos.easyrandom.protobuf.ProtobufDynamicMessageGenerator;
+import io.github.murdos.easyrandom.protobuf.ProtobufGenerationContext;
+import io.github.murdos.easyrandom.protobuf.ProtobufJsonWriter;
+import io.github.murdos.easyrandom.protobuf.ProtobufParameters;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jeasy.random.EasyRandomParameters;
+
+/**
+ * Generate a corpus of random Protobuf messages from the command line, in parallel.
+ * <p>
+ * Messages are generated in batches, each batch within its own {@link ProtobufGenerationContext} seeded from the
+ * corpus seed and the batch index, so that a given seed always yields the same corpus, whatever the number of threads.
+ * Batches are written in order as soon as they're generated.
+ */
+public final class ProtobufCorpusGenerator {
+
+    static final int BATCH_SIZE = 1000;
+    private static final int MAX_PENDING_BATCHES_PER_THREAD = 2;
+    private static final long BATCH_SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    private final CorpusGeneratorOptions options;
+    private final EasyRandomParameters parameters = new EasyRandomParameters();
+    private final ProtobufParameters protobufParameters = new ProtobufParameters();
+    private final BatchWriter batchWriter;
+
+    ProtobufCorpusGenerator(CorpusGeneratorOptions options) throws IOException {
+        this.options = options;
+        this.batchWriter = batchWriter(options);
+    }
+
+    public static void main(String[] args) {
+        CorpusGeneratorOptions options;
+        try {
+            options = CorpusGeneratorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(CorpusGeneratorOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            ProtobufCorpusGenerator generator = new ProtobufCorpusGenerator(options);
+            if (options.getOutput() == null) {
+                generator.generate(System.out, System.err);
+            } else {
+                try (OutputStream out = Files.newOutputStream(options.getOutput())) {
+                    generator.generate(out, System.err);
+                }
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generate the corpus, then print throughput statistics.
+     *
+     * @param out the stream to write the corpus to, which is flushed but not closed
+     * @param statistics the stream to print throughput statistics to
+     */
+    void generate(OutputStream out, PrintStream statistics) throws IOException {
+        long start = System.nanoTime();
+        long writtenBytes = 0;
+        long batchesCount = (options.getCount() + BATCH_SIZE - 1) / BATCH_SIZE;
+        int maxPendingBatches = options.getThreads() * MAX_PENDING_BATCHES_PER_THREAD;
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+        try {
+            OutputStream bufferedOut = new BufferedOutputStream(out);
+            Deque<Future<byte[]>> pendingBatches = new ArrayDeque<>(maxPendingBatches);
+            long nextBatchIndex = 0;
+            while (nextBatchIndex < batchesCount || !pendingBatches.isEmpty()) {
+                // Bound the number of generated batches waiting to be written, to bound memory usage
+                while (nextBatchIndex < batchesCount && pendingBatches.size() < maxPendingBatches) {
+                    long batchIndex = nextBatchIndex++;
+                    int batchSize = (int) Math.min(BATCH_SIZE, options.getCount() - batchIndex * BATCH_SIZE);
+                    pendingBatches.addLast(executor.submit(() -> generateBatch(batchIndex, batchSize)));
+                }
+                byte[] batch = pendingBatches.removeFirst().get();
+                bufferedOut.write(batch);
+                writtenBytes += batch.length;
+            }
+            bufferedOut.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation has been interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        // Empty corpora may be generated within the resolution of the clock
+        double elapsedSeconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        statistics.println(
+            format(
+                "Generated %d %s messages (%d bytes) in %.3f s: %.0f messages/s, %.2f MB/s",
+                options.getCount(),
+                options.getMessage(),
+                writtenBytes,
+                elapsedSeconds,
+                options.getCount() / elapsedSeconds,
+                writtenBytes / elapsedSeconds / 1_000_000
+            )
+        );
+    }
+
+    private byte[] generateBatch(long batchIndex, int batchSize) throws IOException {
+        // Each batch gets its own context, for batches to be reproducible whatever the order they're generated in
+        long batchSeed = options.getSeed() + batchIndex * BATCH_SEED_INCREMENT;
+        ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters, batchSeed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchWriter.write(context, batchSize, out);
+        return out.toByteArray();
+    }
+
+    private static BatchWriter batchWriter(CorpusGeneratorOptions options) throws IOException {
+        if (options.getDescriptorSet() == null) {
+            Class<? extends Message> messageClass = loadMessageClass(options.getMessage());
+            if (options.getFormat() == OutputFormat.DELIMITED) {
+                return (context, batchSize, out) -> {
+                    for (Message message : context.nextBatch(messageClass, batchSize)) {
+                        message.writeDelimitedTo(out);
+                    }
+                };
+            }
+            Descriptor descriptor = (Descriptor) invokeStatic(messageClass, "getDescriptor");
+            return jsonLinesWriter(descriptor);
+        }
+        Descriptor descriptor = findMessageType(options.getDescriptorSet(), options.getMessage());
+        if (options.getFormat() == OutputFormat.JSON_LINES) {
+            return jsonLinesWriter(descriptor);
+        }
+        ProtobufDynamicMessageGenerator messageGenerator = new ProtobufDynamicMessageGenerator();
+        return (context, batchSize, out) -> {
+            for (int i = 0; i < batchSize; i++) {
+                messageGenerator.nextMessage(descriptor, context).writeDelimitedTo(out);
+            }
+        };
+    }
+
+    private static BatchWriter jsonLinesWriter(Descriptor descriptor) {
+        ProtobufJsonWriter jsonWriter = new ProtobufJsonWriter();
+        return (context, batchSize, out) -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (int i = 0; i < batchSize; i++) {
+                jsonWriter.write(descriptor, context, writer);
+                writer.write('\n');
+            }
+            writer.flush();
+        };
+    }
+
+    private static Class<? extends Message> loadMessageClass(String className) {
+        try {
+            return Class.forName(className).asSubclass(Message.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException(format("%s is not a generated message class", className), e);
+        }
+    }
+
+    private static Object invokeStatic(Class<?> type, String methodName) {
+        try {
+            return type.getMethod(methodName).invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Descriptor findMessageType(Path descriptorSetFile, String messageName) throws IOException {
+        FileDescriptorSet descriptorSet = FileDescriptorSet.parseFrom(Files.readAllBytes(descriptorSetFile));
+        Map<String, FileDescriptorProto> fileProtos = new HashMap<>();
+        for (FileDescriptorProto fileProto : descriptorSet.getFileList()) {
+            fileProtos.put(fileProto.getName(), fileProto);
+        }
+        Map<String, FileDescriptor> files = new HashMap<>();
+        for (FileDescriptorProto fileProto : descriptorSet.getFileList()) {
+            FileDescriptor file = buildFile(fileProto, fileProtos, files);
+            Descriptor descriptor = findMessageType(file.getMessageTypes(), messageName);
+            if (descriptor != null) {
+                return descriptor;
+            }
+        }
+        throw new IllegalArgumentException(format("Message type %s not found in %s", messageName, descriptorSetFile));
+    }
+
+    private static Descriptor findMessageType(List<Descriptor> messageTypes, String messageName) {
+        for (Descriptor messageType : messageTypes) {
+            if (messageType.getFullName().equals(messageName)) {
+                return messageType;
+            }
+            Descriptor nestedType = findMessageType(messageType.getNestedTypes(), messageName);
+            if (nestedType != null) {
+                return nestedType;
+            }
+        }
+        return null;
+    }
+
+    private static FileDescriptor buildFile(
+        FileDescriptorProto fileProto,
+        Map<String, FileDescriptorProto> fileProtos,
+        Map<String, FileDescriptor> files
+    ) {
+        FileDescriptor file = files.get(fileProto.getName());
+        if (file != null) {
+            return file;
+        }
+        FileDescriptor[] dependencies = new FileDescriptor[fileProto.getDependencyCount()];
+        for (int i = 0; i < dependencies.length; i++) {
+            FileDescriptorProto dependency = fileProtos.get(fileProto.getDependency(i));
+            if (dependency == null) {
+                throw new IllegalArgumentException(
+                    format(
+                        "Dependency %s of %s is missing from the descriptor set, which must include imports",
+                        fileProto.getDependency(i),
+                        fileProto.getName()
+                    )
+                );
+            }
+            dependencies[i] = buildFile(dependency, fileProtos, files);
+        }
+        try {
+            file = FileDescriptor.buildFrom(fileProto, dependencies);
+        } catch (DescriptorValidationException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        files.put(fileProto.getName(), file);
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface BatchWriter {
+        void write(ProtobufGenerationContext context, int batchSize, OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.UninterpretedOption;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Field;
+import com.google.protobuf.util.JsonFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProtobufCorpusGeneratorTest {
+
+    private static final int COUNT = 2 * ProtobufCorpusGenerator.BATCH_SIZE + 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldGenerateTheSameDelimitedCorpusWhateverTheNumberOfThreads() throws IOException {
+        String messageClass = Field.class.getName();
+        byte[] corpus = generate("--message", messageClass, "--count", "" + COUNT, "--threads", "4");
+        byte[] singleThreadCorpus = generate("--message", messageClass, "--count", "" + COUNT, "--threads", "1");
+
+        List<Field> messages = parseDelimited(corpus);
+        assertThat(messages).hasSize(COUNT).doesNotHaveDuplicates();
+        assertThat(singleThreadCorpus).isEqualTo(corpus);
+    }
+
+    @Test
+    void shouldGenerateJsonLinesFromADescriptorSet() throws IOException {
+        Path descriptorSet = writeDescriptorSet(Field.getDescriptor().getFile());
+
+        byte[] corpus = generate(
+            "--descriptor-set",
+            descriptorSet.toString(),
+            "--message",
+            Field.getDescriptor().getFullName(),
+            "--count",
+            "" + COUNT,
+            "--format",
+            "json"
+        );
+
+        String[] lines = new String(corpus, StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(COUNT);
+        for (String line : lines) {
+            Field.Builder builder = Field.newBuilder();
+            JsonFormat.parser().merge(line, builder);
+            assertThat(builder.getName()).isNotEmpty();
+        }
+    }
+
+    @Test
+    void shouldGenerateDelimitedMessagesFromADescriptorSet() throws IOException {
+        Path descriptorSet = writeDescriptorSet(Field.getDescriptor().getFile());
+        Path output = directory.resolve("corpus.pb");
+
+        generate(
+            "--descriptor-set",
+            descriptorSet.toString(),
+            "--message",
+            Field.getDescriptor().getFullName(),
+            "--count",
+            "10",
+            "--output",
+            output.toString()
+        );
+
+        assertThat(parseDelimited(Files.readAllBytes(output))).hasSize(10);
+    }
+
+    @Test
+    void shouldGenerateRequiredFieldsOfProto2MessagesFromADescriptorSet() throws IOException {
+        Path descriptorSet = writeDescriptorSet(UninterpretedOption.getDescriptor().getFile());
+
+        byte[] corpus = generate(
+            "--descriptor-set",
+            descriptorSet.toString(),
+            "--message",
+            UninterpretedOption.getDescriptor().getFullName(),
+            "--count",
+            "10"
+        );
+
+        ByteArrayInputStream in = new ByteArrayInputStream(corpus);
+        for (int i = 0; i < 10; i++) {
+            UninterpretedOption message = UninterpretedOption.parseDelimitedFrom(in);
+            assertThat(message.getNameList()).isNotEmpty().allMatch(UninterpretedOption.NamePart::isInitialized);
+        }
+    }
+
+    @Test
+    void shouldGenerateEmptyCorpora() throws IOException {
+        byte[] corpus = generate("--message", Field.class.getName(), "--count", "0");
+
+        assertThat(corpus).isEmpty();
+    }
+
+    @Test
+    void shouldRejectInvalidOptions() {
+        assertThatIllegalArgumentException()
+            .isThrownBy(() -> CorpusGeneratorOptions.parse("--count", "10"))
+            .withMessage("Option --message is required");
+        assertThatIllegalArgumentException()
+            .isThrownBy(() -> CorpusGeneratorOptions.parse("--message", "Person", "--threads", "0"))
+            .withMessage("Value of option --threads is out of range: 0");
+        assertThatIllegalArgumentException()
+            .isThrownBy(() -> CorpusGeneratorOptions.parse("--message", "Person", "--format", "xml"))
+            .withMessage("Unknown format: xml");
+    }
+
+    private byte[] generate(String... args) throws IOException {
+        CorpusGeneratorOptions options = CorpusGeneratorOptions.parse(args);
+        ByteArrayOutputStream statistics = new ByteArrayOutputStream();
+        ByteArrayOutputStream corpus = new ByteArrayOutputStream();
+        ProtobufCorpusGenerator generator = new ProtobufCorpusGenerator(options);
+        if (options.getOutput() == null) {
+            generator.generate(corpus, new PrintStream(statistics, true, StandardCharsets.UTF_8));
+        } else {
+            try (OutputStream out = Files.newOutputStream(options.getOutput())) {
+                generator.generate(out, new PrintStream(statistics, true, StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(statistics.toString(StandardCharsets.UTF_8)).startsWith("Generated " + options.getCount() + " ");
+        return corpus.toByteArray();
+    }
+
+    private Path writeDescriptorSet(FileDescriptor file) throws IOException {
+        Map<String, FileDescriptor> files = new LinkedHashMap<>();
+        collectFiles(file, files);
+        FileDescriptorSet.Builder descriptorSet = FileDescriptorSet.newBuilder();
+        files.values().forEach(collectedFile -> descriptorSet.addFile(collectedFile.toProto()));
+        Path descriptorSetFile = directory.resolve("descriptors.pb");
+        Files.write(descriptorSetFile, descriptorSet.build().toByteArray());
+        return descriptorSetFile;
+    }
+
+    private static void collectFiles(FileDescriptor file, Map<String, FileDescriptor> files) {
+        if (files.putIfAbsent(file.getName(), file) == null) {
+            file.getDependencies().forEach(dependency -> collectFiles(dependency, files));
+        }
+    }
+
+    private static List<Field> parseDelimited(byte[] corpus) throws IOException {
+        List<Field> messages = new ArrayList<>();
+        ByteArrayInputStream in = new ByteArrayInputStream(corpus);
+        Field message;
+        while ((message = Field.parseDelimitedFrom(in)) != null) {
+            messages.add(message);
+        }
+        return messages;
+    }
+}
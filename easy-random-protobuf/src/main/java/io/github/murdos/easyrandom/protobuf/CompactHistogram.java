@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Histogram of non-negative integers, e.g. sizes and lengths, in fixed memory: small values are counted exactly,
+ * larger values are counted per power of two, optionally split into sub-buckets of equal width,
+ * within which they're considered uniformly distributed.
+ */
+final class CompactHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int EXACT_VALUES_BITS = 4;
+
+    private final int subBucketsBits;
+    private final long[] counts;
+    private long totalCount;
+    private long sum;
+
+    /**
+     * Create a histogram counting values below 16 exactly, and larger values per power of two.
+     */
+    CompactHistogram() {
+        this(0);
+    }
+
+    /**
+     * Create a histogram counting values below 16 exactly, and larger values per power of two split into
+     * {@code 2^subBucketsBits} sub-buckets: values are then known within a relative error of {@code 2^-subBucketsBits}.
+     */
+    CompactHistogram(int subBucketsBits) {
+        if (subBucketsBits < 0 || subBucketsBits > EXACT_VALUES_BITS) {
+            throw new IllegalArgumentException("subBucketsBits must be between 0 and " + EXACT_VALUES_BITS);
+        }
+        this.subBucketsBits = subBucketsBits;
+        this.counts = new long[(1 << EXACT_VALUES_BITS) + ((Integer.SIZE - 1 - EXACT_VALUES_BITS) << subBucketsBits)];
+    }
+
+    /**
+     * Create a histogram from counts per bucket, e.g. recorded by a {@link ConcurrentCompactHistogram}.
+     */
+    CompactHistogram(int subBucketsBits, long[] counts, long sum) {
+        this(subBucketsBits);
+        if (counts.length != this.counts.length) {
+            throw new IllegalArgumentException("counts must have " + this.counts.length + " buckets");
+        }
+        System.arraycopy(counts, 0, this.counts, 0, counts.length);
+        for (long count : counts) {
+            this.totalCount += count;
+        }
+        this.sum = sum;
+    }
+
+    void record(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be >= 0");
+        }
+        counts[bucketOf(value)]++;
+        totalCount++;
+        sum += value;
+    }
+
+    int getBucketsCount() {
+        return counts.length;
+    }
+
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the highest value of the bucket of the given percentile, or 0 if no value has been recorded
+     */
+    int getPercentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            cumulativeCount += counts[bucket];
+            if (cumulativeCount >= rank) {
+                return lowerBoundOf(bucket) + widthOf(bucket) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return a random value following the recorded distribution, which must not be empty
+     */
+    int sample(Random random) {
+        long choice = random.nextLong(totalCount);
+        int bucket = 0;
+        while (choice >= counts[bucket]) {
+            choice -= counts[bucket];
+            bucket++;
+        }
+        int width = widthOf(bucket);
+        return width == 1 ? lowerBoundOf(bucket) : lowerBoundOf(bucket) + random.nextInt(width);
+    }
+
+    /**
+     * Write the recorded distribution, e.g. to compute a hash of it.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(subBucketsBits);
+        out.writeLong(totalCount);
+        out.writeLong(sum);
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+    }
+
+    int bucketOf(int value) {
+        if (value < 1 << EXACT_VALUES_BITS) {
+            return value;
+        }
+        int highestBit = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value);
+        int subBucket = (value >> (highestBit - subBucketsBits)) & ((1 << subBucketsBits) - 1);
+        return (1 << EXACT_VALUES_BITS) + ((highestBit - EXACT_VALUES_BITS) << subBucketsBits) + subBucket;
+    }
+
+    private int lowerBoundOf(int bucket) {
+        if (bucket < 1 << EXACT_VALUES_BITS) {
+            return bucket;
+        }
+        int highestBit = ((bucket - (1 << EXACT_VALUES_BITS)) >> subBucketsBits) + EXACT_VALUES_BITS;
+        int subBucket = bucket & ((1 << subBucketsBits) - 1);
+        return (1 << highestBit) | (subBucket << (highestBit - subBucketsBits));
+    }
+
+    private int widthOf(int bucket) {
+        if (bucket < 1 << EXACT_VALUES_BITS) {
+            return 1;
+        }
+        int highestBit = ((bucket - (1 << EXACT_VALUES_BITS)) >> subBucketsBits) + EXACT_VALUES_BITS;
+        return 1 << (highestBit - subBucketsBits);
+    }
+}
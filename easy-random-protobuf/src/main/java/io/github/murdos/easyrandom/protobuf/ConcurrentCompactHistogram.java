@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free recorder of a {@link CompactHistogram}, for values recorded by concurrent generations.
+ * Recorded values are read through snapshots: a snapshot taken while values are being recorded may miss some of them.
+ */
+final class ConcurrentCompactHistogram {
+
+    private final int subBucketsBits;
+    // Empty histogram, only used to map values to buckets
+    private final CompactHistogram bucketLayout;
+    private final AtomicLongArray counts;
+    private final LongAdder sum = new LongAdder();
+
+    ConcurrentCompactHistogram(int subBucketsBits) {
+        this.subBucketsBits = subBucketsBits;
+        this.bucketLayout = new CompactHistogram(subBucketsBits);
+        this.counts = new AtomicLongArray(bucketLayout.getBucketsCount());
+    }
+
+    void record(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be >= 0");
+        }
+        counts.incrementAndGet(bucketLayout.bucketOf(value));
+        sum.add(value);
+    }
+
+    CompactHistogram snapshot() {
+        long[] snapshotCounts = new long[counts.length()];
+        for (int bucket = 0; bucket < snapshotCounts.length; bucket++) {
+            snapshotCounts[bucket] = counts.get(bucket);
+        }
+        return new CompactHistogram(subBucketsBits, snapshotCounts, sum.sum());
+    }
+}
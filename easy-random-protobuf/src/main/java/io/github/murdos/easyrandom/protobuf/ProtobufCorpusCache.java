@@ -0,0 +1,306 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.ExtensionRegistry;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jeasy.random.EasyRandomParameters;
+
+/**
+ * Cache of generated corpora on disk, to skip generation when the same corpus has already been generated,
+ * e.g. by a previous test run. A corpus is a file of length-delimited messages, identified by a hash of the schema
+ * of the message type (its file descriptor and all its dependencies), of the number of messages, and of the
+ * parameters which determine generated values: the seed, collection size range, string length range, charset and
+ * object pool size of {@link EasyRandomParameters}, and all {@link ProtobufParameters}, including the schema of
+ * registered extensions. Any change of the schema or of these parameters thus leads to a new corpus.
+ * <p>
+ * Messages are generated within a {@link ProtobufGenerationContext} created from the given {@link ProtobufParameters}:
+ * randomizers registered into {@link EasyRandomParameters} don't apply, so that a corpus only depends on what its key
+ * is computed from.
+ * <pre>{@code
+ * EasyRandomParameters parameters = new EasyRandomParameters();
+ * ProtobufCorpusCache corpusCache = new ProtobufCorpusCache(Path.of("target/corpora"));
+ * List<Person> persons = corpusCache.getCorpus(Person.class, 10_000, parameters, protobufParameters);
+ * }</pre>
+ * Corpora are written atomically, so a cache directory can be shared by concurrent generations.
+ */
+public class ProtobufCorpusCache {
+
+    private static final String CORPUS_FILE_EXTENSION = ".pb";
+    // To be incremented when generation changes, so that corpora generated by previous versions are not reused
+    private static final int GENERATION_VERSION = 3;
+
+    private final Path directory;
+
+    /**
+     * @param directory directory of cached corpora, created when needed
+     */
+    public ProtobufCorpusCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get a corpus of random messages generated with default Protobuf parameters.
+     *
+     * @see #getCorpus(Class, int, EasyRandomParameters, ProtobufParameters)
+     */
+    public <M extends Message> List<M> getCorpus(Class<M> messageClass, int count, EasyRandomParameters parameters)
+        throws IOException {
+        return getCorpus(messageClass, count, parameters, new ProtobufParameters());
+    }
+
+    /**
+     * Get a corpus of random messages, generating it only if it hasn't been cached yet.
+     *
+     * @param messageClass class of the messages
+     * @param count number of messages
+     * @param parameters Easy Random parameters of the generation
+     * @param protobufParameters Protobuf specific parameters of the generation
+     * @return the messages of the corpus
+     * @throws IOException if the corpus can't be read or written
+     */
+    public <M extends Message> List<M> getCorpus(
+        Class<M> messageClass,
+        int count,
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters
+    ) throws IOException {
+        Path corpusFile = getCorpusFile(messageClass, count, parameters, protobufParameters);
+        ProtobufMessageGenerationPlan generationPlan = ProtobufMessageGenerationPlan.forMessageClass(messageClass);
+        @SuppressWarnings("unchecked")
+        Parser<M> parser = (Parser<M>) generationPlan.newBuilder().getDefaultInstanceForType().getParserForType();
+        ExtensionRegistryLite extensionRegistry = protobufParameters.getExtensionRegistry() != null
+            ? protobufParameters.getExtensionRegistry()
+            : ExtensionRegistryLite.getEmptyRegistry();
+        return readCorpus(corpusFile, count, parser, extensionRegistry);
+    }
+
+    /**
+     * Get the file of a corpus of random messages, generating it only if it hasn't been cached yet.
+     * Messages are generated one at a time, so that large corpora can be generated, then streamed from the file,
+     * e.g. with {@link com.google.protobuf.Parser#parseDelimitedFrom(InputStream)}.
+     *
+     * @see #getCorpus(Class, int, EasyRandomParameters, ProtobufParameters)
+     * @return the file of length-delimited messages
+     */
+    public Path getCorpusFile(
+        Class<? extends Message> messageClass,
+        int count,
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters
+    ) throws IOException {
+        Descriptor descriptor = ProtobufMessageGenerationPlan.forMessageClass(messageClass).getDescriptor();
+        String corpusKey = corpusKey(descriptor, count, parameters, protobufParameters);
+        Path corpusFile = directory.resolve(descriptor.getFullName() + '-' + corpusKey + CORPUS_FILE_EXTENSION);
+        if (!Files.exists(corpusFile)) {
+            writeCorpus(messageClass, count, parameters, protobufParameters, corpusFile);
+        }
+        return corpusFile;
+    }
+
+    private void writeCorpus(
+        Class<? extends Message> messageClass,
+        int count,
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters,
+        Path corpusFile
+    ) throws IOException {
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, corpusFile.getFileName().toString(), ".tmp");
+        try {
+            ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters);
+            try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+                CodedOutputStream codedOutput = CodedOutputStream.newInstance(out);
+                for (int i = 0; i < count; i++) {
+                    Message message = context.nextMessage(messageClass);
+                    codedOutput.writeUInt32NoTag(message.getSerializedSize());
+                    message.writeTo(codedOutput);
+                }
+                codedOutput.flush();
+            }
+            // Concurrent generations of the same corpus produce the same file, so the last one can win
+            try {
+                Files.move(
+                    temporaryFile,
+                    corpusFile,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+                );
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, corpusFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static <M extends Message> List<M> readCorpus(
+        Path corpusFile,
+        int count,
+        Parser<M> parser,
+        ExtensionRegistryLite extensionRegistry
+    ) throws IOException {
+        List<M> messages = new ArrayList<>(count);
+        try (FileChannel channel = FileChannel.open(corpusFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= Integer.MAX_VALUE) {
+                // Memory mapping avoids copying the file content into an intermediate buffer
+                CodedInputStream in = CodedInputStream.newInstance(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                while (!in.isAtEnd()) {
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    messages.add(parser.parseFrom(in, extensionRegistry));
+                    in.popLimit(limit);
+                }
+            } else {
+                // Files larger than 2 GB can't be mapped into a single buffer, so they're read sequentially
+                try (InputStream in = Files.newInputStream(corpusFile)) {
+                    M message;
+                    while ((message = parser.parseDelimitedFrom(in, extensionRegistry)) != null) {
+                        messages.add(message);
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    private static String corpusKey(
+        Descriptor descriptor,
+        int count,
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters
+    ) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (
+            DataOutputStream out = new DataOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest)
+            )
+        ) {
+            out.writeInt(GENERATION_VERSION);
+            out.writeUTF(descriptor.getFullName());
+            Map<String, FileDescriptor> files = new TreeMap<>();
+            collectFiles(descriptor.getFile(), files);
+            for (FileDescriptor file : files.values()) {
+                file.toProto().writeTo(out);
+            }
+            out.writeInt(count);
+            out.writeLong(parameters.getSeed());
+            out.writeInt(parameters.getCollectionSizeRange().getMin());
+            out.writeInt(parameters.getCollectionSizeRange().getMax());
+            out.writeInt(parameters.getStringLengthRange().getMin());
+            out.writeInt(parameters.getStringLengthRange().getMax());
+            out.writeUTF(parameters.getCharset().name());
+            out.writeInt(parameters.getObjectPoolSize());
+            writeProtobufParameters(protobufParameters, files.values(), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void collectFiles(FileDescriptor file, Map<String, FileDescriptor> files) {
+        if (files.putIfAbsent(file.getName(), file) == null) {
+            for (FileDescriptor dependency : file.getDependencies()) {
+                collectFiles(dependency, files);
+            }
+        }
+    }
+
+    private static void writeProtobufParameters(
+        ProtobufParameters protobufParameters,
+        Iterable<FileDescriptor> files,
+        DataOutputStream out
+    ) throws IOException {
+        out.writeDouble(protobufParameters.getFieldPresenceProbability());
+        for (Map.Entry<String, Double> probability : protobufParameters.getFieldPresenceProbabilities().entrySet()) {
+            out.writeUTF(probability.getKey());
+            out.writeDouble(probability.getValue());
+        }
+        out.writeInt(protobufParameters.getUnknownFieldsCountRange().getMin());
+        out.writeInt(protobufParameters.getUnknownFieldsCountRange().getMax());
+        out.writeUTF(String.valueOf(protobufParameters.getUtf8StringProfile()));
+        ExtensionRegistry extensionRegistry = protobufParameters.getExtensionRegistry();
+        if (extensionRegistry != null) {
+            // Registries can't be enumerated: look up the extensions of all message types of the schema
+            Map<String, FileDescriptor> extensionFiles = new TreeMap<>();
+            for (FileDescriptor file : files) {
+                for (Descriptor messageType : file.getMessageTypes()) {
+                    writeExtensions(messageType, extensionRegistry, extensionFiles, out);
+                }
+            }
+            // Extensions are identified by their name only: the schema of their files tells their type
+            for (FileDescriptor extensionFile : extensionFiles.values()) {
+                extensionFile.toProto().writeTo(out);
+            }
+        }
+        if (protobufParameters.getMessageProfile() != null) {
+            protobufParameters.getMessageProfile().writeCanonicalForm(out);
+        }
+    }
+
+    private static void writeExtensions(
+        Descriptor messageType,
+        ExtensionRegistry extensionRegistry,
+        Map<String, FileDescriptor> extensionFiles,
+        DataOutputStream out
+    ) throws IOException {
+        List<FieldDescriptor> extensions = extensionRegistry
+            .getAllImmutableExtensionsByExtendedType(messageType.getFullName())
+            .stream()
+            .map(extension -> extension.descriptor)
+            .sorted(Comparator.comparing(FieldDescriptor::getFullName))
+            .toList();
+        for (FieldDescriptor extension : extensions) {
+            out.writeUTF(extension.getFullName());
+            collectFiles(extension.getFile(), extensionFiles);
+        }
+        for (Descriptor nestedType : messageType.getNestedTypes()) {
+            writeExtensions(nestedType, extensionRegistry, extensionFiles, out);
+        }
+    }
+}
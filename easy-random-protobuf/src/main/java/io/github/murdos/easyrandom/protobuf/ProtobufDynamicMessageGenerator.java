@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import com.google.protobuf.DynamicMessage;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generate random {@link DynamicMessage} instances directly from their {@link Descriptor}, e.g. for message types
+ * only known from a descriptor set, without generated classes.
+ * <p>
+ * Set fields and their values follow the given {@link ProtobufParameters}, and are drawn from the randomizers of the
+ * {@link ProtobufGenerationContext}: generating twice from the same seed yields equal messages, which differ from the
+ * messages generated from the generated class with this seed.
+ * Extensions aren't generated, as they can't be resolved from a descriptor.
+ * A message type which is already being generated by an enclosing message is generated with its required fields only,
+ * to stop infinite recursion while still generating initialized proto2 messages.
+ * <pre>{@code
+ * ProtobufDynamicMessageGenerator generator = new ProtobufDynamicMessageGenerator();
+ * ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters, seed);
+ * DynamicMessage person = generator.nextMessage(personDescriptor, context);
+ * }</pre>
+ * A generator doesn't hold any generation state, so it can be shared between concurrent generations.
+ */
+public final class ProtobufDynamicMessageGenerator {
+
+    private final ProtobufParameters protobufParameters;
+    private final ProtobufMessageTraversal traversal;
+    private final ProtobufFieldValueGeneratorProvider fieldGeneratorsProvider;
+
+    public ProtobufDynamicMessageGenerator() {
+        this(new ProtobufParameters());
+    }
+
+    public ProtobufDynamicMessageGenerator(ProtobufParameters protobufParameters) {
+        this.protobufParameters = protobufParameters;
+        this.traversal = new ProtobufMessageTraversal(protobufParameters);
+        this.fieldGeneratorsProvider = new ProtobufFieldValueGeneratorProvider(protobufParameters);
+    }
+
+    /**
+     * Generate a random message.
+     *
+     * @param descriptor descriptor of the message type to generate
+     * @param context the generation context
+     * @return a random message
+     */
+    public DynamicMessage nextMessage(Descriptor descriptor, ProtobufGenerationContext context) {
+        return nextMessage(descriptor, context, new HashSet<>());
+    }
+
+    private DynamicMessage nextMessage(
+        Descriptor descriptor,
+        ProtobufGenerationContext context,
+        Set<Descriptor> enclosingTypes
+    ) {
+        if (!enclosingTypes.add(descriptor)) {
+            return nextMessageWithRequiredFields(descriptor, context, new HashSet<>());
+        }
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+        for (FieldDescriptor field : descriptor.getFields()) {
+            if (field.getRealContainingOneof() == null && traversal.isPresent(field, context)) {
+                populateField(field, builder, context, enclosingTypes);
+            }
+        }
+        for (OneofDescriptor oneof : descriptor.getRealOneofs()) {
+            FieldDescriptor selectedCase = traversal.nextOneofCase(oneof, context);
+            if (selectedCase != null) {
+                populateField(selectedCase, builder, context, enclosingTypes);
+            }
+        }
+        ProtobufMessageRandomizer.populateUnknownFields(descriptor, builder, protobufParameters, context);
+        enclosingTypes.remove(descriptor);
+        DynamicMessage message = builder.build();
+        if (protobufParameters.getGenerationStatistics() != null) {
+            protobufParameters.getGenerationStatistics().recordMessage(message);
+        }
+        return message;
+    }
+
+    /**
+     * Generate the smallest initialized message of a type: only its required fields, sub-messages being generated the
+     * same way. No finite message satisfies a cycle of required message fields: such a cycle is stopped with an empty,
+     * uninitialized message.
+     */
+    private DynamicMessage nextMessageWithRequiredFields(
+        Descriptor descriptor,
+        ProtobufGenerationContext context,
+        Set<Descriptor> enclosingTypes
+    ) {
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+        if (enclosingTypes.add(descriptor)) {
+            for (FieldDescriptor field : descriptor.getFields()) {
+                if (field.isRequired()) {
+                    Object value = field.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+                        ? nextMessageWithRequiredFields(field.getMessageType(), context, enclosingTypes)
+                        : nextValue(field, context, enclosingTypes);
+                    builder.setField(field, value);
+                }
+            }
+            enclosingTypes.remove(descriptor);
+        }
+        return builder.buildPartial();
+    }
+
+    private void populateField(
+        FieldDescriptor field,
+        DynamicMessage.Builder builder,
+        ProtobufGenerationContext context,
+        Set<Descriptor> enclosingTypes
+    ) {
+        if (field.isMapField()) {
+            populateMapField(field, builder, context, enclosingTypes);
+        } else if (field.isRepeated()) {
+            int collectionSize = traversal.nextCollectionSize(field, context);
+            for (int i = 0; i < collectionSize; i++) {
+                builder.addRepeatedField(field, nextValue(field, context, enclosingTypes));
+            }
+        } else {
+            builder.setField(field, nextValue(field, context, enclosingTypes));
+        }
+    }
+
+    private void populateMapField(
+        FieldDescriptor field,
+        DynamicMessage.Builder builder,
+        ProtobufGenerationContext context,
+        Set<Descriptor> enclosingTypes
+    ) {
+        FieldDescriptor keyField = ProtobufMessageTraversal.getMapKeyField(field);
+        FieldDescriptor valueField = ProtobufMessageTraversal.getMapValueField(field);
+        ProtobufMessageTraversal.MapKeys keys = traversal.startMap(field, context);
+        while (!keys.isComplete()) {
+            Object key = nextValue(keyField, context, enclosingTypes);
+            if (keys.add(key)) {
+                DynamicMessage mapEntry = DynamicMessage.newBuilder(field.getMessageType())
+                    .setField(keyField, key)
+                    .setField(valueField, nextValue(valueField, context, enclosingTypes))
+                    .build();
+                builder.addRepeatedField(field, mapEntry);
+            }
+        }
+        traversal.endMap(keys);
+    }
+
+    private Object nextValue(FieldDescriptor field, ProtobufGenerationContext context, Set<Descriptor> enclosingTypes) {
+        if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            return nextMessage(field.getMessageType(), context, enclosingTypes);
+        }
+        Object value = fieldGeneratorsProvider.get(field.getJavaType()).generateFor(field, null, context);
+        // Dynamic messages only accept strings as values of string fields
+        if (value instanceof ByteString utf8Value && field.getJavaType() == FieldDescriptor.JavaType.STRING) {
+            return utf8Value.toStringUtf8();
+        }
+        return value;
+    }
+}
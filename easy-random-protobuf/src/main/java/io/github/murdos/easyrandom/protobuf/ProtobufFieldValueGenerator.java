@@ -16,9 +16,12 @@
 package io.github.murdos.easyrandom.protobuf;
 
 import com.google.protobuf.Descriptors;
-import com.google.protobuf.Message;
 
 @FunctionalInterface
 interface ProtobufFieldValueGenerator {
-    Object generateFor(Descriptors.FieldDescriptor fieldDescriptor, Message.Builder parentMessageBuilder);
+    Object generateFor(
+        Descriptors.FieldDescriptor fieldDescriptor,
+        ProtobufMessageGenerationPlan parentMessagePlan,
+        ProtobufGenerationContext context
+    );
 }
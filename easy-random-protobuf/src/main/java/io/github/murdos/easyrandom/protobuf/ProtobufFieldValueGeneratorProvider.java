@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static com.google.protobuf.Descriptors.FieldDescriptor.JavaType.*;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Random;
+import org.jeasy.random.EasyRandomParameters;
+
+/**
+ * Provide stateless value generators for each Java type of Protobuf fields:
+ * generation state is held by the {@link ProtobufGenerationContext} they're given.
+ */
+class ProtobufFieldValueGeneratorProvider {
+
+    private final EnumMap<Descriptors.FieldDescriptor.JavaType, ProtobufFieldValueGenerator> fieldGenerators = new EnumMap<>(
+        Descriptors.FieldDescriptor.JavaType.class
+    );
+
+    public ProtobufFieldValueGeneratorProvider() {
+        this(new ProtobufParameters());
+    }
+
+    public ProtobufFieldValueGeneratorProvider(ProtobufParameters protobufParameters) {
+        ProtobufMessageProfile messageProfile = protobufParameters.getMessageProfile();
+        this.fieldGenerators.put(INT, generatorForBasicType(int.class));
+        this.fieldGenerators.put(LONG, generatorForBasicType(long.class));
+        this.fieldGenerators.put(FLOAT, generatorForBasicType(float.class));
+        this.fieldGenerators.put(DOUBLE, generatorForBasicType(double.class));
+        this.fieldGenerators.put(BOOLEAN, generatorForBasicType(boolean.class));
+        this.fieldGenerators.put(STRING, generatorForString(protobufParameters.getUtf8StringProfile(), messageProfile));
+        this.fieldGenerators.put(BYTE_STRING, generatorForBytes(messageProfile));
+        this.fieldGenerators.put(ENUM, generatorForEnum(messageProfile));
+        this.fieldGenerators.put(MESSAGE, generatorForProtoMessage());
+    }
+
+    public ProtobufFieldValueGenerator get(Descriptors.FieldDescriptor.JavaType javaType) {
+        return fieldGenerators.get(javaType);
+    }
+
+    private <T> ProtobufFieldValueGenerator generatorForBasicType(Class<T> type) {
+        return (field, containingMessagePlan, context) -> context.nextValue(type);
+    }
+
+    private ProtobufFieldValueGenerator generatorForString(
+        Utf8StringProfile utf8StringProfile,
+        ProtobufMessageProfile messageProfile
+    ) {
+        ProtobufFieldValueGenerator stringGenerator = utf8StringProfile == null
+            ? generatorForBasicType(String.class)
+            : (field, containingMessagePlan, context) -> {
+                EasyRandomParameters.Range<Integer> lengthRange = context.getParameters().getStringLengthRange();
+                Random random = context.getValueRandom();
+                int length = lengthRange.getMin() + random.nextInt(lengthRange.getMax() - lengthRange.getMin() + 1);
+                return utf8StringProfile.randomUtf8(length, random);
+            };
+        if (messageProfile == null) {
+            return stringGenerator;
+        }
+        Utf8StringProfile profiledStringsProfile = utf8StringProfile != null
+            ? utf8StringProfile
+            : Utf8StringProfile.ASCII;
+        return (field, containingMessagePlan, context) -> {
+            Integer length = messageProfile.nextLength(field, context.getValueRandom());
+            return length != null
+                ? profiledStringsProfile.randomUtf8(length, context.getValueRandom())
+                : stringGenerator.generateFor(field, containingMessagePlan, context);
+        };
+    }
+
+    private ProtobufFieldValueGenerator generatorForBytes(ProtobufMessageProfile messageProfile) {
+        ProtobufFieldValueGenerator bytesGenerator = generatorForBasicType(ByteString.class);
+        if (messageProfile == null) {
+            return bytesGenerator;
+        }
+        return (field, containingMessagePlan, context) -> {
+            Integer length = messageProfile.nextLength(field, context.getValueRandom());
+            if (length == null) {
+                return bytesGenerator.generateFor(field, containingMessagePlan, context);
+            }
+            byte[] bytes = new byte[length];
+            context.getValueRandom().nextBytes(bytes);
+            return ByteString.copyFrom(bytes);
+        };
+    }
+
+    private ProtobufFieldValueGenerator generatorForEnum(ProtobufMessageProfile messageProfile) {
+        return (field, containingMessagePlan, context) -> {
+            Random random = context.getValueRandom();
+            Descriptors.EnumValueDescriptor value = messageProfile != null
+                ? messageProfile.nextEnumValue(field, random)
+                : null;
+            if (value == null) {
+                List<Descriptors.EnumValueDescriptor> values = field.getEnumType().getValues();
+                value = values.get(random.nextInt(values.size()));
+            }
+            return value;
+        };
+    }
+
+    private ProtobufFieldValueGenerator generatorForProtoMessage() {
+        return (field, containingMessagePlan, context) ->
+            context.nextValue(containingMessagePlan.getMessageFieldType(field));
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.jeasy.random.api.ContextAwareRandomizer;
+import org.jeasy.random.api.Randomizer;
+import org.jeasy.random.api.RandomizerContext;
+import org.jeasy.random.api.RandomizerProvider;
+import org.jeasy.random.randomizers.misc.BooleanRandomizer;
+import org.jeasy.random.randomizers.number.DoubleRandomizer;
+import org.jeasy.random.randomizers.number.FloatRandomizer;
+import org.jeasy.random.randomizers.number.IntegerRandomizer;
+import org.jeasy.random.randomizers.number.LongRandomizer;
+import org.jeasy.random.randomizers.range.IntegerRangeRandomizer;
+import org.jeasy.random.randomizers.text.StringRandomizer;
+
+/**
+ * State of a generation: sources of randomness, cache of populated message builders used to stop infinite recursion,
+ * and resolved randomizers. Randomizers of this library don't hold any generation state, so concurrent generations
+ * only need one context each, which is passed along explicitly instead of being stored in thread locals.
+ * <p>
+ * A context owns its randomizers, including the ones of scalar values, which are seeded from the seed of the context:
+ * generated messages only depend on this seed, the parameters and the given Protobuf parameters.
+ * Randomizers registered into the {@link EasyRandomParameters}, e.g. through
+ * {@link EasyRandomParameters#randomize(Class, Randomizer)}, don't apply to a context.
+ * <p>
+ * A context is not thread-safe, and must not be shared between concurrent generations.
+ * <pre>{@code
+ * EasyRandomParameters parameters = new EasyRandomParameters();
+ * ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters, seed);
+ * Person person = context.nextMessage(Person.class);
+ * }</pre>
+ */
+public final class ProtobufGenerationContext {
+
+    private final EasyRandomParameters parameters;
+    private final Random random;
+    private final Random valueRandom;
+    private final IntegerRangeRandomizer collectionSizeRandomizer;
+    private final ProtobufMessageBuilderCache protobufMessageBuilderCache;
+    private final Function<Class<?>, Object> randomValueForType;
+    private final Function<Class<?>, Randomizer<?>> randomizerFactory;
+    private final Map<Class<?>, Randomizer<?>> resolvedRandomizers = new IdentityHashMap<>();
+    private RandomizerContext randomizerContext;
+
+    /**
+     * Create a context seeded with {@link EasyRandomParameters#getSeed()}.
+     *
+     * @param parameters Easy Random parameters, e.g. collection size and string length ranges
+     * @param protobufParameters Protobuf parameters applying to generated messages
+     */
+    public ProtobufGenerationContext(EasyRandomParameters parameters, ProtobufParameters protobufParameters) {
+        this(parameters, protobufParameters, parameters.getSeed());
+    }
+
+    /**
+     * @param parameters Easy Random parameters, e.g. collection size and string length ranges
+     * @param protobufParameters Protobuf parameters applying to generated messages
+     * @param seed seed of this context, e.g. distinct for each concurrent generation
+     */
+    public ProtobufGenerationContext(
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters,
+        long seed
+    ) {
+        this(
+            parameters,
+            new Random(seed),
+            new ProtobufMessageBuilderCache(parameters.getObjectPoolSize(), seed),
+            null,
+            protobufParameters
+        );
+    }
+
+    private ProtobufGenerationContext(
+        EasyRandomParameters parameters,
+        Random random,
+        ProtobufMessageBuilderCache protobufMessageBuilderCache,
+        Function<Class<?>, Object> randomValueForType,
+        ProtobufParameters protobufParameters
+    ) {
+        this(
+            parameters,
+            random,
+            new IntegerRangeRandomizer(
+                parameters.getCollectionSizeRange().getMin(),
+                parameters.getCollectionSizeRange().getMax(),
+                random.nextLong()
+            ),
+            new Random(random.nextLong()),
+            protobufMessageBuilderCache,
+            randomValueForType,
+            protobufParameters == null
+                ? null
+                : ownRandomizers(parameters, protobufParameters, random.nextLong(), protobufMessageBuilderCache)
+        );
+    }
+
+    ProtobufGenerationContext(
+        EasyRandomParameters parameters,
+        Random random,
+        IntegerRangeRandomizer collectionSizeRandomizer,
+        Random valueRandom,
+        ProtobufMessageBuilderCache protobufMessageBuilderCache,
+        Function<Class<?>, Object> randomValueForType,
+        Function<Class<?>, Randomizer<?>> randomizerFactory
+    ) {
+        this.parameters = parameters;
+        this.random = random;
+        this.collectionSizeRandomizer = collectionSizeRandomizer;
+        this.valueRandom = valueRandom;
+        this.protobufMessageBuilderCache = protobufMessageBuilderCache;
+        this.randomValueForType = randomValueForType;
+        this.randomizerFactory = randomizerFactory;
+    }
+
+    /**
+     * Randomizers of a context which isn't driven by Easy Random: like Easy Random does for its own instances,
+     * randomizers of scalar values share a seed, which is derived from the seed of the context.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Class<?>, Randomizer<?>> ownRandomizers(
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters,
+        long seed,
+        ProtobufMessageBuilderCache protobufMessageBuilderCache
+    ) {
+        return type -> {
+            if (type == int.class) {
+                return new IntegerRandomizer(seed);
+            } else if (type == long.class) {
+                return new LongRandomizer(seed);
+            } else if (type == float.class) {
+                return new FloatRandomizer(seed);
+            } else if (type == double.class) {
+                return new DoubleRandomizer(seed);
+            } else if (type == boolean.class) {
+                return new BooleanRandomizer(seed);
+            } else if (type == String.class) {
+                EasyRandomParameters.Range<Integer> lengthRange = parameters.getStringLengthRange();
+                return new StringRandomizer(parameters.getCharset(), lengthRange.getMin(), lengthRange.getMax(), seed);
+            } else if (ByteString.class.isAssignableFrom(type)) {
+                return new ByteStringRandomizer(seed);
+            } else if (Message.class.isAssignableFrom(type)) {
+                return new ProtobufMessageRandomizer(
+                    (Class<Message>) type,
+                    parameters,
+                    protobufParameters,
+                    protobufMessageBuilderCache
+                );
+            }
+            throw new IllegalArgumentException("No randomizer for " + type.getName() + " in a generation context");
+        };
+    }
+
+    /**
+     * Create a context relying on an {@link EasyRandom} instance, both as source of randomness and of random values.
+     * Sub-messages being generated by the {@link EasyRandom} instance, only the default collection size range applies
+     * to the context itself.
+     */
+    static ProtobufGenerationContext backedBy(EasyRandom easyRandom) {
+        EasyRandomParameters parameters = new EasyRandomParameters();
+        return new ProtobufGenerationContext(
+            parameters,
+            easyRandom,
+            new ProtobufMessageBuilderCache(parameters.getObjectPoolSize(), easyRandom.nextLong()),
+            easyRandom::nextObject,
+            null
+        );
+    }
+
+    /**
+     * Generate a random message, sub-messages being generated within this context.
+     *
+     * @param messageClass class of the message to generate
+     * @return a random message
+     */
+    public <M extends Message> M nextMessage(Class<M> messageClass) {
+        return messageGenerator(messageClass).get();
+    }
+
+    /**
+     * Generate a batch of random messages. The randomizer of the message type is resolved once for the whole batch.
+     *
+     * @param messageClass class of the messages to generate
+     * @param size number of messages to generate
+     * @return a list of random messages
+     */
+    public <M extends Message> List<M> nextBatch(Class<M> messageClass, int size) {
+        List<M> batch = new ArrayList<>(size);
+        nextBatch(messageClass, size, batch);
+        return batch;
+    }
+
+    /**
+     * Generate a batch of random messages into the given list.
+     *
+     * @param messageClass class of the messages to generate
+     * @param size number of messages to generate
+     * @param batch the list to add generated messages to
+     */
+    public <M extends Message> void nextBatch(Class<M> messageClass, int size, List<? super M> batch) {
+        Supplier<M> messageGenerator = messageGenerator(messageClass);
+        for (int i = 0; i < size; i++) {
+            batch.add(messageGenerator.get());
+        }
+    }
+
+    /**
+     * Fill the given array with random messages.
+     *
+     * @param messageClass class of the messages to generate
+     * @param batch the array to fill
+     */
+    public <M extends Message> void nextBatch(Class<M> messageClass, M[] batch) {
+        Supplier<M> messageGenerator = messageGenerator(messageClass);
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = messageGenerator.get();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M extends Message> Supplier<M> messageGenerator(Class<M> messageClass) {
+        if (randomValueForType != null) {
+            return () -> (M) randomValueForType.apply(messageClass);
+        }
+        Randomizer<?> randomizer = getRandomizerForType(messageClass);
+        if (randomizerContext == null && randomizer instanceof ProtobufMessageRandomizer protobufMessageRandomizer) {
+            return () -> {
+                // Like Easy Random object pools, populated builders are only reused within the same generated object
+                protobufMessageBuilderCache.clear();
+                return (M) protobufMessageRandomizer.getRandomValue(this);
+            };
+        }
+        return () -> (M) nextValue(messageClass);
+    }
+
+    /**
+     * Set the Easy Random context when the generation is driven by {@link EasyRandom}:
+     * sub-messages are then generated by their own randomizer, like any other type.
+     */
+    void setRandomizerContext(RandomizerContext randomizerContext) {
+        this.randomizerContext = randomizerContext;
+    }
+
+    EasyRandomParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return source of randomness for structural choices: collection sizes, oneof cases, field presence
+     */
+    Random getRandom() {
+        return random;
+    }
+
+    /**
+     * @return source of randomness for values directly chosen by this library, e.g. enum values
+     */
+    Random getValueRandom() {
+        return valueRandom;
+    }
+
+    boolean nextPresence(double presenceProbability) {
+        // Avoid consuming random values when all fields are populated, to keep generated values stable for a given seed
+        return presenceProbability >= 1 || random.nextDouble() < presenceProbability;
+    }
+
+    int nextCollectionSize() {
+        return collectionSizeRandomizer.getRandomValue();
+    }
+
+    ProtobufMessageBuilderCache getProtobufMessageBuilderCache() {
+        return protobufMessageBuilderCache;
+    }
+
+    Object nextValue(Class<?> type) {
+        if (randomValueForType != null) {
+            return randomValueForType.apply(type);
+        }
+        Randomizer<?> randomizer = getRandomizerForType(type);
+        if (randomizerContext == null && randomizer instanceof ProtobufMessageRandomizer protobufMessageRandomizer) {
+            return protobufMessageRandomizer.getRandomValue(this);
+        }
+        if (randomizerContext != null && randomizer instanceof ContextAwareRandomizer<?> contextAwareRandomizer) {
+            contextAwareRandomizer.setRandomizerContext(randomizerContext);
+        }
+        return randomizer.getRandomValue();
+    }
+
+    private Randomizer<?> getRandomizerForType(Class<?> type) {
+        // Resolution through all registries is costly, and always yields the same randomizer for a given type
+        Randomizer<?> randomizer = resolvedRandomizers.get(type);
+        if (randomizer == null) {
+            randomizer = randomizerFactory != null
+                ? randomizerFactory.apply(type)
+                : getRandomizerProvider().getRandomizerByType(type, randomizerContext);
+            resolvedRandomizers.put(type, randomizer);
+        }
+        return randomizer;
+    }
+
+    private RandomizerProvider getRandomizerProvider() {
+        RandomizerProvider randomizerProvider = randomizerContext != null
+            ? randomizerContext.getParameters().getRandomizerProvider()
+            : parameters.getRandomizerProvider();
+        if (randomizerProvider == null) {
+            throw new IllegalStateException("Parameters must have been used to create an EasyRandom instance");
+        }
+        return randomizerProvider;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static java.lang.String.format;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import com.google.protobuf.Message;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Statistics of generated messages, to check the shape and cost of a corpus: serialized size per message type,
+ * sizes of repeated and map fields, frequencies of oneof cases, and how often populated messages are reused to stop
+ * infinite recursion. Statistics are collected for messages generated by {@link ProtobufMessageRandomizer} and
+ * {@link ProtobufDynamicMessageGenerator}, and for messages written by {@link ProtobufJsonWriter}, whose sizes are
+ * JSON lengths, once the collector is set into {@link ProtobufParameters#generationStatistics}:
+ * <pre>{@code
+ * ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+ * ProtobufParameters protobufParameters = new ProtobufParameters().generationStatistics(statistics);
+ * // Generate messages
+ * System.out.println(statistics.report());
+ * }</pre>
+ * Memory usage only depends on the schema, not on the number of generated messages: sizes are aggregated into
+ * histograms, so that percentiles are upper bounds, within about 6%. A collector can be shared by concurrent
+ * generations, which record statistics without locking; statistics read during a generation may be incomplete.
+ */
+public final class ProtobufGenerationStatistics {
+
+    private static final int SUB_BUCKETS_BITS = 4;
+    private static final String ONEOF_NOT_SET = "(not set)";
+
+    private final ConcurrentMap<String, ConcurrentCompactHistogram> serializedSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentCompactHistogram> jsonSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentCompactHistogram> collectionSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> oneofCases = new ConcurrentHashMap<>();
+    private final LongAdder builderCacheLookups = new LongAdder();
+    private final LongAdder builderCacheReuses = new LongAdder();
+
+    void recordMessage(Message message) {
+        // Sizes of messages over 2 GB, which can't be serialized, overflow
+        histogram(serializedSizes, message.getDescriptorForType().getFullName())
+            .record(Math.max(message.getSerializedSize(), 0));
+    }
+
+    void recordJsonMessage(Descriptor messageType, long length) {
+        histogram(jsonSizes, messageType.getFullName()).record((int) Math.min(length, Integer.MAX_VALUE));
+    }
+
+    void recordCollectionSize(FieldDescriptor field, int size) {
+        histogram(collectionSizes, field.getFullName()).record(size);
+    }
+
+    void recordOneofCase(OneofDescriptor oneof, FieldDescriptor selectedCase) {
+        Map<String, LongAdder> cases = get(oneofCases, oneof.getFullName(), fullName -> new ConcurrentHashMap<>());
+        get(cases, selectedCase == null ? ONEOF_NOT_SET : selectedCase.getName(), name -> new LongAdder()).increment();
+    }
+
+    void recordBuilderCacheLookup(boolean reused) {
+        builderCacheLookups.increment();
+        if (reused) {
+            builderCacheReuses.increment();
+        }
+    }
+
+    private static ConcurrentCompactHistogram histogram(
+        Map<String, ConcurrentCompactHistogram> histograms,
+        String name
+    ) {
+        return get(histograms, name, key -> new ConcurrentCompactHistogram(SUB_BUCKETS_BITS));
+    }
+
+    private static <V> V get(Map<String, V> values, String key, Function<String, V> valueFactory) {
+        // Existing values are retrieved without locking, unlike ConcurrentHashMap.computeIfAbsent may do
+        V value = values.get(key);
+        return value != null ? value : values.computeIfAbsent(key, valueFactory);
+    }
+
+    /**
+     * @param messageType full name of a message type
+     * @return the number of generated messages of the given type, including sub-messages, either built or written as
+     * JSON
+     */
+    public long getMessageCount(String messageType) {
+        long builtMessagesCount = snapshot(serializedSizes, messageType).getTotalCount();
+        return builtMessagesCount + snapshot(jsonSizes, messageType).getTotalCount();
+    }
+
+    /**
+     * @param messageType full name of a message type
+     * @return the average serialized size of generated messages of the given type, in bytes
+     */
+    public double getAverageSerializedSize(String messageType) {
+        return snapshot(serializedSizes, messageType).getMean();
+    }
+
+    /**
+     * @param messageType full name of a message type
+     * @param percentile the percentile, between 0 and 100
+     * @return an upper bound of the given percentile of serialized sizes of generated messages of the given type
+     */
+    public int getSerializedSizePercentile(String messageType, double percentile) {
+        return snapshot(serializedSizes, messageType).getPercentile(percentile);
+    }
+
+    /**
+     * @param messageType full name of a message type
+     * @return the average length of messages of the given type written as JSON, in characters
+     */
+    public double getAverageJsonSize(String messageType) {
+        return snapshot(jsonSizes, messageType).getMean();
+    }
+
+    /**
+     * @param messageType full name of a message type
+     * @param percentile the percentile, between 0 and 100
+     * @return an upper bound of the given percentile of lengths of messages of the given type written as JSON
+     */
+    public int getJsonSizePercentile(String messageType, double percentile) {
+        return snapshot(jsonSizes, messageType).getPercentile(percentile);
+    }
+
+    /**
+     * @param field full name of a repeated or map field
+     * @return the average number of elements of the given field
+     */
+    public double getAverageCollectionSize(String field) {
+        return snapshot(collectionSizes, field).getMean();
+    }
+
+    /**
+     * @param oneof full name of a oneof
+     * @return the number of generated messages per case of the given oneof, by field name
+     */
+    public Map<String, Long> getOneofCaseCounts(String oneof) {
+        Map<String, LongAdder> cases = oneofCases.get(oneof);
+        return cases == null ? Map.of() : Map.copyOf(counts(cases));
+    }
+
+    /**
+     * @return the proportion of generated messages that are populated messages reused to stop infinite recursion
+     */
+    public double getBuilderCacheReuseRate() {
+        return reuseRate(builderCacheLookups.sum(), builderCacheReuses.sum());
+    }
+
+    /**
+     * @return a human-readable summary of all statistics
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder("Serialized sizes (bytes):\n");
+        snapshots(serializedSizes).forEach((messageType, histogram) -> appendHistogram(report, messageType, histogram));
+        if (!jsonSizes.isEmpty()) {
+            report.append("JSON sizes (characters):\n");
+            snapshots(jsonSizes).forEach((messageType, histogram) -> appendHistogram(report, messageType, histogram));
+        }
+        report.append("Repeated and map field sizes:\n");
+        snapshots(collectionSizes).forEach((field, histogram) -> appendHistogram(report, field, histogram));
+        report.append("Oneof cases:\n");
+        new TreeMap<>(oneofCases).forEach((oneof, cases) -> {
+            Map<String, Long> caseCounts = counts(cases);
+            long totalCount = caseCounts.values().stream().mapToLong(Long::longValue).sum();
+            report.append("  ").append(oneof).append(':');
+            caseCounts.forEach((selectedCase, count) ->
+                report.append(format(Locale.ROOT, " %s=%.1f%%", selectedCase, 100.0 * count / totalCount))
+            );
+            report.append('\n');
+        });
+        long lookups = builderCacheLookups.sum();
+        long reuses = builderCacheReuses.sum();
+        report.append(
+            format(
+                Locale.ROOT,
+                "Recursion cache: %d reused of %d messages (%.1f%%)\n",
+                reuses,
+                lookups,
+                100 * reuseRate(lookups, reuses)
+            )
+        );
+        return report.toString();
+    }
+
+    private static double reuseRate(long lookups, long reuses) {
+        return lookups == 0 ? 0 : (double) reuses / lookups;
+    }
+
+    private static CompactHistogram snapshot(Map<String, ConcurrentCompactHistogram> histograms, String name) {
+        ConcurrentCompactHistogram histogram = histograms.get(name);
+        return histogram == null ? new CompactHistogram(SUB_BUCKETS_BITS) : histogram.snapshot();
+    }
+
+    private static Map<String, CompactHistogram> snapshots(Map<String, ConcurrentCompactHistogram> histograms) {
+        Map<String, CompactHistogram> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+    private static Map<String, Long> counts(Map<String, LongAdder> cases) {
+        Map<String, Long> counts = new TreeMap<>();
+        cases.forEach((selectedCase, count) -> counts.put(selectedCase, count.sum()));
+        return counts;
+    }
+
+    private static void appendHistogram(StringBuilder report, String name, CompactHistogram histogram) {
+        // Percentiles are upper bounds of the buckets they fall into
+        report.append(
+            format(
+                Locale.ROOT,
+                "  %s: count=%d avg=%.1f p50<=%d p99<=%d max<=%d\n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getMean(),
+                histogram.getPercentile(50),
+                histogram.getPercentile(99),
+                histogram.getPercentile(100)
+            )
+        );
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Write random Protobuf messages as proto3 JSON, directly from their {@link Descriptor}:
+ * no {@link com.google.protobuf.Message} is built, which makes it suitable to produce large JSON corpora.
+ * <p>
+ * Which fields are written, and their values, depend on the given {@link ProtobufParameters} and on the randomizers of
+ * the {@link ProtobufGenerationContext} only: a seed always yields the same JSON, though not the JSON of the message
+ * generated from this seed.
+ * Extensions and unknown fields have no proto3 JSON representation, and aren't written.
+ * A message type which is already being written by an enclosing message is written with its required fields only,
+ * to stop infinite recursion while still writing valid proto2 messages.
+ * <pre>{@code
+ * ProtobufJsonWriter jsonWriter = new ProtobufJsonWriter();
+ * ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters, seed);
+ * jsonWriter.write(Person.getDescriptor(), context, writer);
+ * }</pre>
+ * A writer doesn't hold any generation state, so it can be shared between concurrent generations.
+ */
+public final class ProtobufJsonWriter {
+
+    // Range of timestamps and durations accepted by proto3 JSON: 0001-01-01T00:00:00Z to 9999-12-31T23:59:59Z
+    private static final long MIN_TIMESTAMP_SECONDS = -62_135_596_800L;
+    private static final long MAX_TIMESTAMP_SECONDS = 253_402_300_799L;
+    private static final long MAX_DURATION_SECONDS = 315_576_000_000L;
+    private static final int NANOS_PER_SECOND = 1_000_000_000;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final ProtobufParameters protobufParameters;
+    private final ProtobufMessageTraversal traversal;
+    private final ProtobufFieldValueGeneratorProvider fieldGeneratorsProvider;
+
+    public ProtobufJsonWriter() {
+        this(new ProtobufParameters());
+    }
+
+    public ProtobufJsonWriter(ProtobufParameters protobufParameters) {
+        this.protobufParameters = protobufParameters;
+        this.traversal = new ProtobufMessageTraversal(protobufParameters);
+        this.fieldGeneratorsProvider = new ProtobufFieldValueGeneratorProvider(protobufParameters);
+    }
+
+    /**
+     * Write a random message as JSON. The writer is neither flushed nor closed, so that many messages can be written
+     * to the same buffered writer, e.g. one per line, without allocating an encoder and a buffer per message.
+     *
+     * @param descriptor descriptor of the message type to write
+     * @param context the generation context
+     * @param out the writer to write JSON to
+     * @throws IOException if the writer fails
+     */
+    public void write(Descriptor descriptor, ProtobufGenerationContext context, Writer out) throws IOException {
+        // Lengths of written messages are only measured when statistics are collected
+        Writer measuredOut = protobufParameters.getGenerationStatistics() != null ? new CountingWriter(out) : out;
+        writeMessage(descriptor, context, measuredOut, new HashSet<>());
+    }
+
+    private void writeMessage(
+        Descriptor descriptor,
+        ProtobufGenerationContext context,
+        Writer out,
+        Set<Descriptor> enclosingTypes
+    ) throws IOException {
+        long start = lengthOf(out);
+        if (writeWellKnownType(descriptor, context, out, enclosingTypes)) {
+            recordMessage(descriptor, out, start);
+            return;
+        }
+        if (!enclosingTypes.add(descriptor)) {
+            writeRequiredFields(descriptor, context, out, new HashSet<>());
+            return;
+        }
+        out.write('{');
+        boolean firstField = true;
+        for (FieldDescriptor field : descriptor.getFields()) {
+            if (field.getRealContainingOneof() == null && traversal.isPresent(field, context)) {
+                writeFieldName(field, firstField, out);
+                writeField(field, context, out, enclosingTypes);
+                firstField = false;
+            }
+        }
+        for (OneofDescriptor oneof : descriptor.getRealOneofs()) {
+            FieldDescriptor selectedCase = traversal.nextOneofCase(oneof, context);
+            if (selectedCase != null) {
+                writeFieldName(selectedCase, firstField, out);
+                writeField(selectedCase, context, out, enclosingTypes);
+                firstField = false;
+            }
+        }
+        out.write('}');
+        enclosingTypes.remove(descriptor);
+        recordMessage(descriptor, out, start);
+    }
+
+    /**
+     * Write the smallest valid message of a type: only its required fields, sub-messages being written the same way.
+     * No finite message satisfies a cycle of required message fields: such a cycle is stopped with an empty object.
+     */
+    private void writeRequiredFields(
+        Descriptor descriptor,
+        ProtobufGenerationContext context,
+        Writer out,
+        Set<Descriptor> enclosingTypes
+    ) throws IOException {
+        long start = lengthOf(out);
+        if (writeWellKnownType(descriptor, context, out, enclosingTypes)) {
+            recordMessage(descriptor, out, start);
+            return;
+        }
+        out.write('{');
+        if (enclosingTypes.add(descriptor)) {
+            boolean firstField = true;
+            for (FieldDescriptor field : descriptor.getFields()) {
+                if (field.isRequired()) {
+                    writeFieldName(field, firstField, out);
+                    if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                        writeRequiredFields(field.getMessageType(), context, out, enclosingTypes);
+                    } else {
+                        writeValue(field, context, out, enclosingTypes);
+                    }
+                    firstField = false;
+                }
+            }
+            enclosingTypes.remove(descriptor);
+        }
+        out.write('}');
+        recordMessage(descriptor, out, start);
+    }
+
+    private static long lengthOf(Writer out) {
+        return out instanceof CountingWriter countingOut ? countingOut.getCount() : 0;
+    }
+
+    private void recordMessage(Descriptor descriptor, Writer out, long start) {
+        if (out instanceof CountingWriter countingOut) {
+            protobufParameters.getGenerationStatistics().recordJsonMessage(descriptor, countingOut.getCount() - start);
+        }
+    }
+
+    private static void writeFieldName(FieldDescriptor field, boolean firstField, Writer out) throws IOException {
+        if (!firstField) {
+            out.write(',');
+        }
+        writeString(field.getJsonName(), out);
+        out.write(':');
+    }
+
+    private void writeField(
+        FieldDescriptor field,
+        ProtobufGenerationContext context,
+        Writer out,
+        Set<Descriptor> enclosingTypes
+    ) throws IOException {
+        if (field.isMapField()) {
+            writeMapField(field, context, out, enclosingTypes);
+        } else if (field.isRepeated()) {
+            int collectionSize = traversal.nextCollectionSize(field, context);
+            out.write('[');
+            for (int i = 0; i < collectionSize; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeValue(field, context, out, enclosingTypes);
+            }
+            out.write(']');
+        } else {
+            writeValue(field, context, out, enclosingTypes);
+        }
+    }
+
+    private void writeMapField(
+        FieldDescriptor field,
+        ProtobufGenerationContext context,
+        Writer out,
+        Set<Descriptor> enclosingTypes
+    ) throws IOException {
+        FieldDescriptor keyField = ProtobufMessageTraversal.getMapKeyField(field);
+        FieldDescriptor valueField = ProtobufMessageTraversal.getMapValueField(field);
+        ProtobufFieldValueGenerator keyGenerator = fieldGeneratorsProvider.get(keyField.getJavaType());
+        ProtobufMessageTraversal.MapKeys keys = traversal.startMap(field, context);
+        out.write('{');
+        while (!keys.isComplete()) {
+            // Map keys are always written as JSON strings
+            String key = toScalarJson(keyField, keyGenerator.generateFor(keyField, null, context), false);
+            if (keys.add(key)) {
+                if (keys.size() > 1) {
+                    out.write(',');
+                }
+                writeString(key, out);
+                out.write(':');
+                writeValue(valueField, context, out, enclosingTypes);
+            }
+        }
+        out.write('}');
+        traversal.endMap(keys);
+    }
+
+    private void writeValue(
+        FieldDescriptor field,
+        ProtobufGenerationContext context,
+        Writer out,
+        Set<Descriptor> enclosingTypes
+    ) throws IOException {
+        if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            writeMessage(field.getMessageType(), context, out, enclosingTypes);
+        } else {
+            Object value = fieldGeneratorsProvider.get(field.getJavaType()).generateFor(field, null, context);
+            writeScalar(field, value, out);
+        }
+    }
+
+    private static void writeScalar(FieldDescriptor field, Object value, Writer out) throws IOException {
+        switch (field.getJavaType()) {
+            case STRING, BYTE_STRING, ENUM -> writeString(toScalarJson(field, value, false), out);
+            default -> out.write(toScalarJson(field, value, true));
+        }
+    }
+
+    /**
+     * @param quoteSpecialValues whether values that are written as JSON strings, like 64 bits integers, are quoted
+     */
+    private static String toScalarJson(FieldDescriptor field, Object value, boolean quoteSpecialValues) {
+        String json =
+            switch (field.getType()) {
+                case UINT32, FIXED32 -> Integer.toUnsignedString((Integer) value);
+                case UINT64, FIXED64 -> Long.toUnsignedString((Long) value);
+                case STRING -> value instanceof ByteString utf8Value ? utf8Value.toStringUtf8() : (String) value;
+                case BYTES -> Base64.getEncoder().encodeToString(((ByteString) value).toByteArray());
+                case ENUM -> ((EnumValueDescriptor) value).getName();
+                default -> String.valueOf(value);
+            };
+        // 64 bits integers and non-finite floating point numbers are written as JSON strings
+        if (
+            quoteSpecialValues &&
+            (field.getJavaType() == FieldDescriptor.JavaType.LONG ||
+                (value instanceof Double doubleValue && !Double.isFinite(doubleValue)) ||
+                (value instanceof Float floatValue && !Float.isFinite(floatValue)))
+        ) {
+            return '"' + json + '"';
+        }
+        return json;
+    }
+
+    private boolean writeWellKnownType(
+        Descriptor descriptor,
+        ProtobufGenerationContext context,
+        Writer out,
+        Set<Descriptor> enclosingTypes
+    ) throws IOException {
+        Random random = context.getValueRandom();
+        switch (descriptor.getFullName()) {
+            case "google.protobuf.DoubleValue",
+                "google.protobuf.FloatValue",
+                "google.protobuf.Int64Value",
+                "google.protobuf.UInt64Value",
+                "google.protobuf.Int32Value",
+                "google.protobuf.UInt32Value",
+                "google.protobuf.BoolValue",
+                "google.protobuf.StringValue",
+                "google.protobuf.BytesValue" -> writeValue(descriptor.getFields().get(0), context, out, enclosingTypes);
+            case "google.protobuf.Timestamp" -> {
+                long seconds = random.nextLong(MIN_TIMESTAMP_SECONDS, MAX_TIMESTAMP_SECONDS + 1);
+                writeString(Instant.ofEpochSecond(seconds, random.nextInt(NANOS_PER_SECOND)).toString(), out);
+            }
+            case "google.protobuf.Duration" -> {
+                long seconds = random.nextLong(-MAX_DURATION_SECONDS, MAX_DURATION_SECONDS + 1);
+                int nanos = random.nextInt(NANOS_PER_SECOND);
+                String fraction = nanos == 0 ? "" : String.format(".%09d", nanos);
+                writeString((seconds < 0 ? "-" : "") + Math.abs(seconds) + fraction + 's', out);
+            }
+            // Dynamic and type-erased values are written as empty values, which are valid for any field
+            case "google.protobuf.Any", "google.protobuf.Struct", "google.protobuf.Value" -> out.write("{}");
+            case "google.protobuf.ListValue" -> out.write("[]");
+            case "google.protobuf.FieldMask" -> out.write("\"\"");
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        int length = value.length();
+        int unescapedStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                out.write(value, unescapedStart, i - unescapedStart);
+                unescapedStart = i + 1;
+                switch (c) {
+                    case '"' -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> {
+                        out.write("\\u00");
+                        out.write(HEX_DIGITS[c >> 4]);
+                        out.write(HEX_DIGITS[c & 0xF]);
+                    }
+                }
+            }
+        }
+        out.write(value, unescapedStart, length - unescapedStart);
+        out.write('"');
+    }
+
+    /**
+     * Count written characters, to measure the JSON length of written messages.
+     */
+    private static final class CountingWriter extends Writer {
+
+        private final Writer out;
+        private long count;
+
+        private CountingWriter(Writer out) {
+            this.out = out;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String value, int offset, int length) throws IOException {
+            out.write(value, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -24,17 +24,20 @@
  */
 class ProtobufMessageBuilderCache {
 
-    private final EasyRandomParameters parameters;
+    private final int objectPoolSize;
     private final Random random;
     private final Map<Class<? extends Message.Builder>, List<Message.Builder>> populatedMessageBuilders = new IdentityHashMap<>();
 
     ProtobufMessageBuilderCache(EasyRandomParameters parameters) {
-        this.parameters = parameters;
-        this.random = new Random(parameters.getSeed());
+        this(parameters.getObjectPoolSize(), parameters.getSeed());
+    }
+
+    ProtobufMessageBuilderCache(int objectPoolSize, long seed) {
+        this.objectPoolSize = objectPoolSize;
+        this.random = new Random(seed);
     }
 
     void addPopulatedMessageBuilderReference(Class<? extends Message.Builder> type, Message.Builder messageBuilder) {
-        int objectPoolSize = parameters.getObjectPoolSize();
         List<Message.Builder> objects = populatedMessageBuilders.computeIfAbsent(
             type,
             clazz -> new ArrayList<>(objectPoolSize)
@@ -50,10 +53,14 @@ Message.Builder getRandomPopulatedMessageBuilder(Class<? extends Message.Builder
         return populatedMessageBuilders.get(type).get(randomIndex);
     }
 
+    void clear() {
+        populatedMessageBuilders.clear();
+    }
+
     boolean hasAlreadyRandomizedBuilder(Class<? extends Message.Builder> type) {
         return (
             populatedMessageBuilders.containsKey(type) &&
-            populatedMessageBuilders.get(type).size() == parameters.getObjectPoolSize()
+            populatedMessageBuilders.get(type).size() == objectPoolSize
         );
     }
 }
@@ -31,11 +31,21 @@ public ProtobufMessageBuilderRandomizer(
         Class<Message.Builder> messageBuilderClass,
         EasyRandomParameters parameters,
         ProtobufMessageBuilderCache protobufMessageBuilderCache
+    ) {
+        this(messageBuilderClass, parameters, new ProtobufParameters(), protobufMessageBuilderCache);
+    }
+
+    public ProtobufMessageBuilderRandomizer(
+        Class<Message.Builder> messageBuilderClass,
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters,
+        ProtobufMessageBuilderCache protobufMessageBuilderCache
     ) {
         this.protobufMessageRandomizer =
             new ProtobufMessageRandomizer(
                 retrieveMessageClassFromBuilderClass(messageBuilderClass),
                 parameters,
+                protobufParameters,
                 protobufMessageBuilderCache
             );
     }
@@ -55,6 +65,13 @@ public Message.Builder getRandomValue() {
         return protobufMessageRandomizer.getRandomValue().toBuilder();
     }
 
+    /**
+     * @see ProtobufMessageRandomizer#getRandomValue(ProtobufGenerationContext)
+     */
+    public Message.Builder getRandomValue(ProtobufGenerationContext context) {
+        return protobufMessageRandomizer.getRandomValue(context).toBuilder();
+    }
+
     public String toString() {
         return this.getClass().getSimpleName();
     }
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import com.google.protobuf.Message;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schema-derived metadata needed to generate a Protobuf message type.
+ * It is computed once per message class and shared by all randomizers of the JVM,
+ * so that descriptor traversal and reflective lookups are not paid on each generation.
+ * <p>
+ * A plan is computed lazily, when a message class is first generated: this first generation still pays for
+ * descriptor traversal and reflective lookups, only subsequent ones are spared.
+ * <p>
+ * Plans are associated to their message class through a {@link ClassValue}, which is owned by the class itself:
+ * a plan is reclaimed along with its message class.
+ */
+final class ProtobufMessageGenerationPlan {
+
+    private static final ClassValue<ProtobufMessageGenerationPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected ProtobufMessageGenerationPlan computeValue(Class<?> messageClass) {
+            return new ProtobufMessageGenerationPlan(retrieveDefaultInstance(messageClass));
+        }
+    };
+
+    private final Message defaultInstance;
+    private final Descriptor descriptor;
+    private final List<FieldDescriptor> plainFields;
+    private final List<OneofDescriptor> oneofs;
+    private final Map<FieldDescriptor, Class<? extends Message>> messageFieldTypes = new IdentityHashMap<>();
+    private final Map<FieldDescriptor, Message> mapEntryPrototypes = new IdentityHashMap<>();
+
+    private ProtobufMessageGenerationPlan(Message defaultInstance) {
+        this.defaultInstance = defaultInstance;
+        this.descriptor = defaultInstance.getDescriptorForType();
+        this.plainFields =
+            descriptor.getFields().stream().filter(field -> field.getRealContainingOneof() == null).toList();
+        this.oneofs = descriptor.getRealOneofs();
+        Message.Builder builder = defaultInstance.newBuilderForType();
+        for (FieldDescriptor field : descriptor.getFields()) {
+            if (field.isMapField()) {
+                Message.Builder mapEntryBuilder = builder.newBuilderForField(field);
+                mapEntryPrototypes.put(field, mapEntryBuilder.getDefaultInstanceForType());
+                for (FieldDescriptor entryField : field.getMessageType().getFields()) {
+                    registerMessageFieldType(entryField, mapEntryBuilder);
+                }
+            } else {
+                registerMessageFieldType(field, builder);
+            }
+        }
+    }
+
+    static ProtobufMessageGenerationPlan forMessageClass(Class<? extends Message> messageClass) {
+        return PLANS.get(messageClass);
+    }
+
+    private void registerMessageFieldType(FieldDescriptor field, Message.Builder containingBuilder) {
+        if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            messageFieldTypes.put(
+                field,
+                containingBuilder.newBuilderForField(field).getDefaultInstanceForType().getClass()
+            );
+        }
+    }
+
+    private static Message retrieveDefaultInstance(Class<?> messageClass) {
+        try {
+            Method getDefaultInstanceMethod = messageClass.getMethod("getDefaultInstance");
+            return (Message) getDefaultInstanceMethod.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    Message.Builder newBuilder() {
+        return defaultInstance.newBuilderForType();
+    }
+
+    Descriptor getDescriptor() {
+        return descriptor;
+    }
+
+    List<FieldDescriptor> getPlainFields() {
+        return plainFields;
+    }
+
+    List<OneofDescriptor> getOneofs() {
+        return oneofs;
+    }
+
+    /**
+     * @return the generated class of the given message field, including key and value fields of map entries
+     */
+    Class<? extends Message> getMessageFieldType(FieldDescriptor field) {
+        return messageFieldTypes.get(field);
+    }
+
+    /**
+     * @return the default entry of the given map field, whose builders populate entries without reflection
+     */
+    Message getMapEntryPrototype(FieldDescriptor mapField) {
+        return mapEntryPrototypes.get(mapField);
+    }
+}
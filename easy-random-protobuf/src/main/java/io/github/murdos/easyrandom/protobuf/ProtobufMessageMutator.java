@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.Message.Builder;
+import java.util.List;
+import java.util.Random;
+import org.jeasy.random.EasyRandom;
+
+/**
+ * Apply random field-level edits to Protobuf {@link Message}s, to produce successive versions of a message.
+ * Each edit either changes a scalar value, appends or replaces an element of a repeated field, puts a map entry,
+ * sets an empty sub-message or recursively edits a sub-message. Edits don't generate whole messages, but producing a
+ * new version still copies the original message, and a map edit scans the entries of the edited map: its cost grows
+ * with the size of the message.
+ * <p>
+ * Only effective edits are counted: an edit which leaves the message unchanged, e.g. a value replaced by an equal
+ * one, is retried on another random field.
+ */
+public class ProtobufMessageMutator {
+
+    private static final int MAX_ATTEMPTS_PER_EDIT = 100;
+
+    private final ProtobufGenerationContext context;
+    private final Random random;
+    private final ProtobufFieldValueGeneratorProvider fieldGeneratorsProvider;
+
+    /**
+     * @param easyRandom used as source of randomness, and to generate new field values
+     */
+    public ProtobufMessageMutator(EasyRandom easyRandom) {
+        this.context = ProtobufGenerationContext.backedBy(easyRandom);
+        this.random = context.getRandom();
+        this.fieldGeneratorsProvider = new ProtobufFieldValueGeneratorProvider();
+    }
+
+    /**
+     * @param message the message to derive a new version from
+     * @param edits number of random field-level edits to apply
+     * @return a new message, with the given number of effective edits applied to the original message
+     * @throws IllegalArgumentException if edits are requested on a message type without fields
+     * @throws IllegalStateException if no effective edit could be found after many attempts,
+     *  e.g. for a message type whose only field is an already set empty sub-message
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends Message> M mutate(M message, int edits) {
+        if (edits > 0 && message.getDescriptorForType().getFields().isEmpty()) {
+            throw new IllegalArgumentException(message.getDescriptorForType().getFullName() + " has no field to edit");
+        }
+        Builder builder = message.toBuilder();
+        int remainingAttempts = edits * MAX_ATTEMPTS_PER_EDIT;
+        for (int appliedEdits = 0; appliedEdits < edits; ) {
+            if (remainingAttempts-- == 0) {
+                throw new IllegalStateException(
+                    "Unable to apply " + edits + " edits to " + message.getDescriptorForType().getFullName()
+                );
+            }
+            if (mutateOneField(builder)) {
+                appliedEdits++;
+            }
+        }
+        return (M) builder.build();
+    }
+
+    /**
+     * @return whether the builder has been changed
+     */
+    private boolean mutateOneField(Builder builder) {
+        List<FieldDescriptor> fields = builder.getDescriptorForType().getFields();
+        if (fields.isEmpty()) {
+            return false;
+        }
+        FieldDescriptor field = fields.get(random.nextInt(fields.size()));
+        if (field.isMapField()) {
+            return putMapEntry(field, builder);
+        } else if (field.isRepeated()) {
+            return mutateRepeatedField(field, builder);
+        } else if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            return mutateMessageField(field, builder);
+        }
+        Object value = generateValue(field, builder);
+        boolean changed = (field.hasPresence() && !builder.hasField(field)) || !value.equals(builder.getField(field));
+        builder.setField(field, value);
+        return changed;
+    }
+
+    private boolean mutateMessageField(FieldDescriptor field, Builder builder) {
+        // New sub-messages start empty, and get populated by subsequent edits
+        if (!builder.hasField(field)) {
+            builder.setField(field, builder.newBuilderForField(field).build());
+            return true;
+        }
+        Builder fieldBuilder = builder.newBuilderForField(field).mergeFrom((Message) builder.getField(field));
+        if (!mutateOneField(fieldBuilder)) {
+            return false;
+        }
+        builder.setField(field, fieldBuilder.build());
+        return true;
+    }
+
+    private boolean mutateRepeatedField(FieldDescriptor field, Builder builder) {
+        int size = builder.getRepeatedFieldCount(field);
+        Object value = generateValue(field, builder);
+        if (size == 0 || random.nextBoolean()) {
+            builder.addRepeatedField(field, value);
+            return true;
+        }
+        int index = random.nextInt(size);
+        boolean changed = !value.equals(builder.getRepeatedField(field, index));
+        builder.setRepeatedField(field, index, value);
+        return changed;
+    }
+
+    private boolean putMapEntry(FieldDescriptor mapField, Builder builder) {
+        FieldDescriptor keyField = mapField.getMessageType().getFields().get(0);
+        FieldDescriptor valueField = mapField.getMessageType().getFields().get(1);
+        Builder mapEntryBuilder = builder.newBuilderForField(mapField);
+        Object key = generateValue(keyField, mapEntryBuilder);
+        Object value = generateValue(valueField, mapEntryBuilder);
+        mapEntryBuilder.setField(keyField, key);
+        mapEntryBuilder.setField(valueField, value);
+        // The last entry of a key wins: the map is unchanged if it already holds the same value for this key
+        Object previousValue = null;
+        for (int i = 0; i < builder.getRepeatedFieldCount(mapField); i++) {
+            Message entry = (Message) builder.getRepeatedField(mapField, i);
+            if (key.equals(entry.getField(keyField))) {
+                previousValue = entry.getField(valueField);
+            }
+        }
+        builder.addRepeatedField(mapField, mapEntryBuilder.build());
+        return !value.equals(previousValue);
+    }
+
+    private Object generateValue(FieldDescriptor field, Builder containingBuilder) {
+        if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            return containingBuilder.newBuilderForField(field).build();
+        }
+        // Only message value generators need the plan of the containing message
+        Object value = fieldGeneratorsProvider.get(field.getJavaType()).generateFor(field, null, context);
+        // Values are compared with the ones of the message, and set through reflection on any kind of builder
+        return value instanceof ByteString utf8Value && field.getJavaType() == FieldDescriptor.JavaType.STRING
+            ? utf8Value.toStringUtf8()
+            : value;
+    }
+
+    public String toString() {
+        return this.getClass().getSimpleName();
+    }
+}
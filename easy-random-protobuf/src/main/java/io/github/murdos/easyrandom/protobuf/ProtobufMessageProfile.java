@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Distribution of field values observed in sample messages, built by a {@link ProtobufMessageProfiler}:
+ * field presence, repeated field and map sizes, string and bytes lengths, enum values and oneof cases.
+ * Fields are identified by their full name, so that a profile can be serialized and reused with the same schema.
+ * <p>
+ * Random messages follow the profile once it is set into {@link ProtobufParameters#messageProfile}.
+ * Fields and oneofs that haven't been observed are generated as usual.
+ */
+public final class ProtobufMessageProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int ONEOF_NOT_SET = 0;
+
+    private final Map<String, FieldProfile> fields = new HashMap<>();
+    private final Map<String, Frequencies> oneofCases = new HashMap<>();
+
+    ProtobufMessageProfile() {}
+
+    FieldProfile getOrCreateFieldProfile(FieldDescriptor field) {
+        return fields.computeIfAbsent(field.getFullName(), fullName -> new FieldProfile());
+    }
+
+    void recordOneofCase(OneofDescriptor oneof, FieldDescriptor selectedCase) {
+        oneofCases
+            .computeIfAbsent(oneof.getFullName(), fullName -> new Frequencies())
+            .record(selectedCase == null ? ONEOF_NOT_SET : selectedCase.getNumber());
+    }
+
+    /**
+     * @return the observed presence probability of a singular field, or {@code null} if it hasn't been observed
+     */
+    Double getPresenceProbability(FieldDescriptor field) {
+        FieldProfile fieldProfile = fields.get(field.getFullName());
+        if (fieldProfile == null || fieldProfile.observedCount == 0) {
+            return null;
+        }
+        return (double) fieldProfile.presentCount / fieldProfile.observedCount;
+    }
+
+    /**
+     * @return the observed probability of a oneof to be set, or {@code null} if it hasn't been observed
+     */
+    Double getPresenceProbability(OneofDescriptor oneof) {
+        Frequencies cases = oneofCases.get(oneof.getFullName());
+        if (cases == null) {
+            return null;
+        }
+        return 1 - (double) cases.getCount(ONEOF_NOT_SET) / cases.getTotalCount();
+    }
+
+    /**
+     * @return a field of the oneof, following observed frequencies, or {@code null} if none has been observed
+     */
+    FieldDescriptor nextOneofCase(OneofDescriptor oneof, Random random) {
+        Frequencies cases = oneofCases.get(oneof.getFullName());
+        // Field numbers are positive: cases of a set oneof are the values above ONEOF_NOT_SET
+        Integer fieldNumber = cases == null ? null : cases.sample(ONEOF_NOT_SET + 1, random);
+        return fieldNumber == null ? null : oneof.getContainingType().findFieldByNumber(fieldNumber);
+    }
+
+    /**
+     * @return a size for a repeated or map field, following observed sizes, or {@code null} if none has been observed
+     */
+    Integer nextCollectionSize(FieldDescriptor field, Random random) {
+        FieldProfile fieldProfile = fields.get(field.getFullName());
+        if (fieldProfile == null || fieldProfile.collectionSizes.getTotalCount() == 0) {
+            return null;
+        }
+        return fieldProfile.collectionSizes.sample(random);
+    }
+
+    /**
+     * @return a length for a string (in characters) or bytes field, following observed lengths,
+     * or {@code null} if none has been observed
+     */
+    Integer nextLength(FieldDescriptor field, Random random) {
+        FieldProfile fieldProfile = fields.get(field.getFullName());
+        if (fieldProfile == null || fieldProfile.lengths.getTotalCount() == 0) {
+            return null;
+        }
+        return fieldProfile.lengths.sample(random);
+    }
+
+    /**
+     * @return a value for an enum field, following observed frequencies, or {@code null} if none has been observed
+     */
+    EnumValueDescriptor nextEnumValue(FieldDescriptor field, Random random) {
+        FieldProfile fieldProfile = fields.get(field.getFullName());
+        if (fieldProfile == null) {
+            return null;
+        }
+        Integer number = fieldProfile.enumValues.sample(Integer.MIN_VALUE, random);
+        return number == null ? null : field.getEnumType().findValueByNumber(number);
+    }
+
+    /**
+     * Write the profile in a canonical form, independent of the order in which fields have been observed,
+     * e.g. to compute a hash of it. Unlike Java serialization, equal profiles are always written the same way.
+     */
+    void writeCanonicalForm(DataOutput out) throws IOException {
+        for (Map.Entry<String, FieldProfile> field : new TreeMap<>(fields).entrySet()) {
+            out.writeUTF(field.getKey());
+            field.getValue().writeCanonicalForm(out);
+        }
+        for (Map.Entry<String, Frequencies> oneof : new TreeMap<>(oneofCases).entrySet()) {
+            out.writeUTF(oneof.getKey());
+            oneof.getValue().writeCanonicalForm(out);
+        }
+    }
+
+    /**
+     * Observed counts of integer values, e.g. enum value numbers or oneof cases.
+     * Values are sampled in increasing order, so that a given seed always yields the same values.
+     */
+    static final class Frequencies implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Integer, Long> counts = new TreeMap<>();
+        // Built on first sampling once counts have changed, or have been deserialized, then shared by generations
+        private transient volatile CumulativeCounts cumulativeCounts;
+
+        void record(int value) {
+            counts.merge(value, 1L, Long::sum);
+            cumulativeCounts = null;
+        }
+
+        long getCount(int value) {
+            return counts.getOrDefault(value, 0L);
+        }
+
+        long getTotalCount() {
+            return getCumulativeCounts().totalCount();
+        }
+
+        /**
+         * @param minValue lowest value to sample, lower values being ignored
+         * @return a random value following the observed counts, or {@code null} if no value has been observed
+         */
+        Integer sample(int minValue, Random random) {
+            CumulativeCounts cumulative = getCumulativeCounts();
+            int firstIndex = Arrays.binarySearch(cumulative.values(), minValue);
+            if (firstIndex < 0) {
+                firstIndex = -firstIndex - 1;
+            }
+            long ignoredCount = firstIndex == 0 ? 0 : cumulative.counts()[firstIndex - 1];
+            if (cumulative.totalCount() == ignoredCount) {
+                return null;
+            }
+            long choice = ignoredCount + random.nextLong(cumulative.totalCount() - ignoredCount);
+            // First value whose cumulative count is above the choice
+            int index = Arrays.binarySearch(cumulative.counts(), firstIndex, cumulative.counts().length, choice + 1);
+            return cumulative.values()[index < 0 ? -index - 1 : index];
+        }
+
+        void writeCanonicalForm(DataOutput out) throws IOException {
+            out.writeInt(counts.size());
+            for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+                out.writeInt(count.getKey());
+                out.writeLong(count.getValue());
+            }
+        }
+
+        private CumulativeCounts getCumulativeCounts() {
+            CumulativeCounts cumulative = cumulativeCounts;
+            if (cumulative == null) {
+                int[] values = new int[counts.size()];
+                long[] cumulativeCountsOfValues = new long[counts.size()];
+                long totalCount = 0;
+                int index = 0;
+                for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+                    totalCount += count.getValue();
+                    values[index] = count.getKey();
+                    cumulativeCountsOfValues[index] = totalCount;
+                    index++;
+                }
+                cumulative = new CumulativeCounts(values, cumulativeCountsOfValues, totalCount);
+                cumulativeCounts = cumulative;
+            }
+            return cumulative;
+        }
+
+        /**
+         * @param counts number of observations of each value and of all lower values
+         */
+        private record CumulativeCounts(int[] values, long[] counts, long totalCount) {}
+    }
+
+    static final class FieldProfile implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private long observedCount;
+        private long presentCount;
+        private final CompactHistogram collectionSizes = new CompactHistogram();
+        private final CompactHistogram lengths = new CompactHistogram();
+        private final Frequencies enumValues = new Frequencies();
+
+        void recordPresence(boolean present) {
+            observedCount++;
+            if (present) {
+                presentCount++;
+            }
+        }
+
+        void recordCollectionSize(int size) {
+            collectionSizes.record(size);
+        }
+
+        void recordLength(int length) {
+            lengths.record(length);
+        }
+
+        void recordEnumValue(int number) {
+            enumValues.record(number);
+        }
+
+        void writeCanonicalForm(DataOutput out) throws IOException {
+            out.writeLong(observedCount);
+            out.writeLong(presentCount);
+            collectionSizes.writeTo(out);
+            lengths.writeTo(out);
+            enumValues.writeCanonicalForm(out);
+        }
+    }
+}
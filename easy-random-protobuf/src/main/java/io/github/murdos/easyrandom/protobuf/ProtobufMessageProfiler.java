@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Build a {@link ProtobufMessageProfile} from sample messages, e.g. captured from production traffic,
+ * so that random messages reproduce their shape:
+ * <pre>{@code
+ * ProtobufMessageProfiler profiler = new ProtobufMessageProfiler();
+ * samples.forEach(profiler::record);
+ * ProtobufParameters protobufParameters = new ProtobufParameters().messageProfile(profiler.getProfile());
+ * }</pre>
+ * Sub-messages are profiled as well, per message type. A profiler is not thread-safe.
+ */
+public class ProtobufMessageProfiler {
+
+    private final ProtobufMessageProfile profile = new ProtobufMessageProfile();
+
+    /**
+     * Record the fields of a sample message into the profile.
+     *
+     * @param message the sample message
+     * @return the current {@link ProtobufMessageProfiler} instance for method chaining
+     */
+    public ProtobufMessageProfiler record(Message message) {
+        Descriptor descriptor = message.getDescriptorForType();
+        for (FieldDescriptor field : descriptor.getFields()) {
+            ProtobufMessageProfile.FieldProfile fieldProfile = profile.getOrCreateFieldProfile(field);
+            if (field.isRepeated()) {
+                int size = message.getRepeatedFieldCount(field);
+                fieldProfile.recordCollectionSize(size);
+                for (int i = 0; i < size; i++) {
+                    recordValue(field, message.getRepeatedField(field, i), fieldProfile);
+                }
+            } else {
+                // Fields without presence tracking are considered present when they're not set to their default value
+                boolean present = message.hasField(field);
+                fieldProfile.recordPresence(present);
+                if (present) {
+                    recordValue(field, message.getField(field), fieldProfile);
+                }
+            }
+        }
+        for (OneofDescriptor oneof : descriptor.getRealOneofs()) {
+            profile.recordOneofCase(oneof, message.getOneofFieldDescriptor(oneof));
+        }
+        return this;
+    }
+
+    /**
+     * Record sample messages read from a stream of length-delimited messages, until its end.
+     * The stream is not closed.
+     *
+     * @param descriptor descriptor of the sample messages
+     * @param in the stream to read sample messages from
+     * @return the current {@link ProtobufMessageProfiler} instance for method chaining
+     * @throws IOException if the stream can't be read or doesn't contain messages of the given type
+     */
+    public ProtobufMessageProfiler recordDelimited(Descriptor descriptor, InputStream in) throws IOException {
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+        while (builder.mergeDelimitedFrom(in)) {
+            record(builder.build());
+            builder.clear();
+        }
+        return this;
+    }
+
+    public ProtobufMessageProfile getProfile() {
+        return profile;
+    }
+
+    private void recordValue(FieldDescriptor field, Object value, ProtobufMessageProfile.FieldProfile fieldProfile) {
+        switch (field.getJavaType()) {
+            case STRING -> {
+                String stringValue = (String) value;
+                fieldProfile.recordLength(stringValue.codePointCount(0, stringValue.length()));
+            }
+            case BYTE_STRING -> fieldProfile.recordLength(((ByteString) value).size());
+            case ENUM -> fieldProfile.recordEnumValue(((EnumValueDescriptor) value).getNumber());
+            case MESSAGE -> record((Message) value);
+            default -> {}
+        }
+    }
+}
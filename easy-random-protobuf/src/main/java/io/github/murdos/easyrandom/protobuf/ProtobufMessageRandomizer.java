@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.ExtensionRegistry;
+import com.google.protobuf.GeneratedMessage;
+import com.google.protobuf.Message;
+import com.google.protobuf.Message.Builder;
+import com.google.protobuf.UnknownFieldSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.jeasy.random.EasyRandomParameters;
+import org.jeasy.random.api.ContextAwareRandomizer;
+import org.jeasy.random.api.RandomizerContext;
+import org.jeasy.random.randomizers.range.IntegerRangeRandomizer;
+
+/**
+ * Generate a random Protobuf {@link Message}.
+ * <p>
+ * When used as a {@link org.jeasy.random.api.Randomizer}, generation state is kept in a context owned by this
+ * randomizer. Use {@link #getRandomValue(ProtobufGenerationContext)} to generate messages concurrently.
+ */
+public class ProtobufMessageRandomizer implements ContextAwareRandomizer<Message> {
+
+    private static final int MAX_UNKNOWN_FIELD_NUMBER_OFFSET = 100;
+    private static final int MAX_FIELD_NUMBER = (1 << 29) - 1;
+    private static final int FIRST_RESERVED_FIELD_NUMBER = 19000;
+    private static final int LAST_RESERVED_FIELD_NUMBER = 19999;
+
+    private final ProtobufMessageGenerationPlan generationPlan;
+    private final ProtobufParameters protobufParameters;
+    private final ProtobufMessageTraversal traversal;
+    private final ProtobufFieldValueGeneratorProvider fieldGeneratorsProvider;
+    private final ProtobufGenerationContext defaultContext;
+
+    public ProtobufMessageRandomizer(
+        Class<Message> messageClass,
+        EasyRandomParameters parameters,
+        ProtobufMessageBuilderCache protobufMessageBuilderCache
+    ) {
+        this(messageClass, parameters, new ProtobufParameters(), protobufMessageBuilderCache);
+    }
+
+    public ProtobufMessageRandomizer(
+        Class<Message> messageClass,
+        EasyRandomParameters parameters,
+        ProtobufParameters protobufParameters,
+        ProtobufMessageBuilderCache protobufMessageBuilderCache
+    ) {
+        this.generationPlan = ProtobufMessageGenerationPlan.forMessageClass(messageClass);
+        this.protobufParameters = protobufParameters;
+        this.traversal = new ProtobufMessageTraversal(protobufParameters);
+        this.fieldGeneratorsProvider = new ProtobufFieldValueGeneratorProvider(protobufParameters);
+        Random random = new Random(parameters.getSeed());
+        this.defaultContext =
+            new ProtobufGenerationContext(
+                parameters,
+                random,
+                new IntegerRangeRandomizer(
+                    parameters.getCollectionSizeRange().getMin(),
+                    parameters.getCollectionSizeRange().getMax(),
+                    random.nextLong()
+                ),
+                new Random(parameters.getSeed()),
+                protobufMessageBuilderCache,
+                null,
+                null
+            );
+    }
+
+    @Override
+    public void setRandomizerContext(RandomizerContext randomizerContext) {
+        this.defaultContext.setRandomizerContext(randomizerContext);
+    }
+
+    @Override
+    public Message getRandomValue() {
+        return getRandomValue(defaultContext);
+    }
+
+    /**
+     * Generate a random message within the given context. This method doesn't modify the state of this randomizer,
+     * so it can be called concurrently as long as each caller uses its own context.
+     *
+     * @param context the generation context
+     * @return a random message
+     */
+    public Message getRandomValue(ProtobufGenerationContext context) {
+        ProtobufMessageBuilderCache protobufMessageBuilderCache = context.getProtobufMessageBuilderCache();
+        ProtobufGenerationStatistics statistics = protobufParameters.getGenerationStatistics();
+        Builder builder = generationPlan.newBuilder();
+        // If the type has been already randomized, return one cached instance to avoid recursion
+        // Builder is used since we need to add a reference to the cache before fully populating the message
+        boolean reused = protobufMessageBuilderCache.hasAlreadyRandomizedBuilder(builder.getClass());
+        if (statistics != null) {
+            statistics.recordBuilderCacheLookup(reused);
+        }
+        Message message;
+        if (reused) {
+            message = protobufMessageBuilderCache.getRandomPopulatedMessageBuilder(builder.getClass()).build();
+        } else {
+            protobufMessageBuilderCache.addPopulatedMessageBuilderReference(builder.getClass(), builder);
+            message = populate(builder, context);
+        }
+        if (statistics != null) {
+            statistics.recordMessage(message);
+        }
+        return message;
+    }
+
+    private Message populate(Builder builder, ProtobufGenerationContext context) {
+        for (FieldDescriptor fieldDescriptor : generationPlan.getPlainFields()) {
+            if (traversal.isPresent(fieldDescriptor, context)) {
+                populateField(fieldDescriptor, builder, context);
+            }
+        }
+        for (Descriptors.OneofDescriptor oneofDescriptor : generationPlan.getOneofs()) {
+            FieldDescriptor selectedCase = traversal.nextOneofCase(oneofDescriptor, context);
+            if (selectedCase != null) {
+                populateField(selectedCase, builder, context);
+            }
+        }
+        populateExtensions(builder, context);
+        populateUnknownFields(generationPlan.getDescriptor(), builder, protobufParameters, context);
+        return builder.build();
+    }
+
+    private void populateExtensions(Builder builder, ProtobufGenerationContext context) {
+        ExtensionRegistry extensionRegistry = protobufParameters.getExtensionRegistry();
+        if (extensionRegistry == null) {
+            return;
+        }
+        Set<ExtensionRegistry.ExtensionInfo> extensions = extensionRegistry.getAllImmutableExtensionsByExtendedType(
+            generationPlan.getDescriptor().getFullName()
+        );
+        for (ExtensionRegistry.ExtensionInfo extension : extensions) {
+            FieldDescriptor field = extension.descriptor;
+            if (traversal.isPresent(field, context)) {
+                ProtobufFieldValueGenerator fieldGenerator = field.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+                    ? (fieldDescriptor, parentMessagePlan, generationContext) ->
+                        generationContext.nextValue(extension.defaultInstance.getClass())
+                    : fieldGeneratorsProvider.get(field.getJavaType());
+                populateField(field, fieldGenerator, builder, context);
+            }
+        }
+    }
+
+    static void populateUnknownFields(
+        Descriptors.Descriptor descriptor,
+        Builder builder,
+        ProtobufParameters protobufParameters,
+        ProtobufGenerationContext context
+    ) {
+        Random random = context.getRandom();
+        EasyRandomParameters.Range<Integer> unknownFieldsCountRange = protobufParameters.getUnknownFieldsCountRange();
+        int unknownFieldsCount = unknownFieldsCountRange.getMin();
+        if (unknownFieldsCountRange.getMax() > unknownFieldsCount) {
+            unknownFieldsCount += random.nextInt(unknownFieldsCountRange.getMax() - unknownFieldsCount + 1);
+        }
+        if (unknownFieldsCount == 0) {
+            return;
+        }
+        int highestFieldNumber = descriptor.getFields().stream().mapToInt(FieldDescriptor::getNumber).max().orElse(0);
+        UnknownFieldSet.Builder unknownFields = UnknownFieldSet.newBuilder();
+        Set<Integer> numbers = new HashSet<>();
+        int candidateNumbersCount = MAX_UNKNOWN_FIELD_NUMBER_OFFSET;
+        while (numbers.size() < unknownFieldsCount) {
+            // Unknown fields are typically fields added by a newer version of the schema
+            int number = highestFieldNumber + 1 + random.nextInt(candidateNumbersCount);
+            if (number > MAX_FIELD_NUMBER) {
+                number -= MAX_FIELD_NUMBER;
+            }
+            if (isUnknownFieldNumber(descriptor, number) && numbers.add(number)) {
+                unknownFields.addField(number, randomUnknownField(random));
+            } else {
+                // Widen candidate numbers on each collision, so that enough distinct valid numbers are eventually drawn
+                candidateNumbersCount = Math.min(candidateNumbersCount + 1, MAX_FIELD_NUMBER);
+            }
+        }
+        builder.setUnknownFields(unknownFields.build());
+    }
+
+    private static boolean isUnknownFieldNumber(Descriptors.Descriptor descriptor, int number) {
+        return (
+            (number < FIRST_RESERVED_FIELD_NUMBER || number > LAST_RESERVED_FIELD_NUMBER) &&
+            descriptor.findFieldByNumber(number) == null &&
+            !descriptor.isExtensionNumber(number) &&
+            !descriptor.isReservedNumber(number)
+        );
+    }
+
+    private static UnknownFieldSet.Field randomUnknownField(Random random) {
+        UnknownFieldSet.Field.Builder field = UnknownFieldSet.Field.newBuilder();
+        switch (random.nextInt(4)) {
+            case 0 -> field.addVarint(random.nextLong());
+            case 1 -> field.addFixed32(random.nextInt());
+            case 2 -> field.addFixed64(random.nextLong());
+            default -> {
+                byte[] bytes = new byte[random.nextInt(32)];
+                random.nextBytes(bytes);
+                field.addLengthDelimited(ByteString.copyFrom(bytes));
+            }
+        }
+        return field.build();
+    }
+
+    private void populateField(FieldDescriptor field, Builder containingBuilder, ProtobufGenerationContext context) {
+        if (field.isMapField()) {
+            populateMapField(field, containingBuilder, context);
+        } else {
+            populateField(field, fieldGeneratorsProvider.get(field.getJavaType()), containingBuilder, context);
+        }
+    }
+
+    private void populateMapField(FieldDescriptor field, Builder containingBuilder, ProtobufGenerationContext context) {
+        Message mapEntryPrototype = generationPlan.getMapEntryPrototype(field);
+        FieldDescriptor keyField = ProtobufMessageTraversal.getMapKeyField(field);
+        FieldDescriptor valueField = ProtobufMessageTraversal.getMapValueField(field);
+        ProtobufFieldValueGenerator keyGenerator = fieldGeneratorsProvider.get(keyField.getJavaType());
+        ProtobufFieldValueGenerator valueGenerator = fieldGeneratorsProvider.get(valueField.getJavaType());
+        ProtobufMessageTraversal.MapKeys keys = traversal.startMap(field, context);
+        while (!keys.isComplete()) {
+            Object key = keyGenerator.generateFor(keyField, generationPlan, context);
+            if (keys.add(key)) {
+                Builder mapEntryBuilder = mapEntryPrototype.newBuilderForType();
+                Object value = valueGenerator.generateFor(valueField, generationPlan, context);
+                containingBuilder.addRepeatedField(
+                    field,
+                    mapEntryBuilder
+                        .setField(keyField, toFieldValue(keyField, key, mapEntryBuilder))
+                        .setField(valueField, toFieldValue(valueField, value, mapEntryBuilder))
+                        .build()
+                );
+            }
+        }
+        traversal.endMap(keys);
+    }
+
+    private void populateField(
+        FieldDescriptor field,
+        ProtobufFieldValueGenerator fieldGenerator,
+        Builder containingBuilder,
+        ProtobufGenerationContext context
+    ) {
+        if (field.isRepeated()) {
+            int collectionSize = traversal.nextCollectionSize(field, context);
+            for (int i = 0; i < collectionSize; i++) {
+                Object value = fieldGenerator.generateFor(field, generationPlan, context);
+                containingBuilder.addRepeatedField(field, toFieldValue(field, value, containingBuilder));
+            }
+        } else {
+            Object value = fieldGenerator.generateFor(field, generationPlan, context);
+            containingBuilder.setField(field, toFieldValue(field, value, containingBuilder));
+        }
+    }
+
+    private static Object toFieldValue(FieldDescriptor field, Object value, Builder containingBuilder) {
+        // Only singular string fields of generated messages accept UTF-8 encoded values through reflection
+        if (
+            value instanceof ByteString utf8Value &&
+            field.getJavaType() == FieldDescriptor.JavaType.STRING &&
+            (field.isRepeated() || field.isExtension() || !(containingBuilder instanceof GeneratedMessage.Builder<?>))
+        ) {
+            return utf8Value.toStringUtf8();
+        }
+        return value;
+    }
+
+    public String toString() {
+        return this.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decisions taken while traversing the fields of a generated message, whatever is generated from them: which fields
+ * and oneof cases are set, and how many elements repeated and map fields have. Decisions follow the
+ * {@link ProtobufParameters}, and are recorded into their {@link ProtobufGenerationStatistics}, if any.
+ * <p>
+ * Generated messages, dynamic messages and JSON take the same decisions in the same order, so that they only differ
+ * in how values are built or written.
+ */
+final class ProtobufMessageTraversal {
+
+    private static final int MAP_ENTRY_KEY_FIELD_NUMBER = 1;
+    private static final int MAP_ENTRY_VALUE_FIELD_NUMBER = 2;
+    private static final int MAX_KEY_GENERATION_ATTEMPTS_PER_MAP_ENTRY = 10;
+
+    private final ProtobufParameters protobufParameters;
+
+    ProtobufMessageTraversal(ProtobufParameters protobufParameters) {
+        this.protobufParameters = protobufParameters;
+    }
+
+    static FieldDescriptor getMapKeyField(FieldDescriptor mapField) {
+        return mapField.getMessageType().findFieldByNumber(MAP_ENTRY_KEY_FIELD_NUMBER);
+    }
+
+    static FieldDescriptor getMapValueField(FieldDescriptor mapField) {
+        return mapField.getMessageType().findFieldByNumber(MAP_ENTRY_VALUE_FIELD_NUMBER);
+    }
+
+    /**
+     * @return whether a field outside of any oneof, or an extension, is set
+     */
+    boolean isPresent(FieldDescriptor field, ProtobufGenerationContext context) {
+        return context.nextPresence(protobufParameters.getFieldPresenceProbability(field));
+    }
+
+    /**
+     * @return the field of the oneof to set, or {@code null} if the oneof is left unset
+     */
+    FieldDescriptor nextOneofCase(OneofDescriptor oneof, ProtobufGenerationContext context) {
+        FieldDescriptor selectedCase = context.nextPresence(protobufParameters.getFieldPresenceProbability(oneof))
+            ? protobufParameters.nextOneofCase(oneof, context)
+            : null;
+        ProtobufGenerationStatistics statistics = protobufParameters.getGenerationStatistics();
+        if (statistics != null) {
+            statistics.recordOneofCase(oneof, selectedCase);
+        }
+        return selectedCase;
+    }
+
+    /**
+     * @return the number of elements of a repeated field which isn't a map field
+     */
+    int nextCollectionSize(FieldDescriptor field, ProtobufGenerationContext context) {
+        int collectionSize = protobufParameters.nextCollectionSize(field, context);
+        recordCollectionSize(field, collectionSize);
+        return collectionSize;
+    }
+
+    /**
+     * Start generating the keys of a map field: keys are generated until {@link MapKeys#isComplete()}, and each key
+     * accepted by {@link MapKeys#add(Object)} is generated with a value. The map is then ended with
+     * {@link #endMap(MapKeys)}.
+     */
+    MapKeys startMap(FieldDescriptor field, ProtobufGenerationContext context) {
+        return new MapKeys(field, protobufParameters.nextCollectionSize(field, context));
+    }
+
+    void endMap(MapKeys keys) {
+        recordCollectionSize(keys.field, keys.size());
+    }
+
+    private void recordCollectionSize(FieldDescriptor field, int collectionSize) {
+        ProtobufGenerationStatistics statistics = protobufParameters.getGenerationStatistics();
+        if (statistics != null) {
+            statistics.recordCollectionSize(field, collectionSize);
+        }
+    }
+
+    /**
+     * Distinct keys of a generated map. Entries with duplicate keys would collapse: keys are generated until the map
+     * has the expected size, giving up for key types with too few distinct values, e.g. booleans.
+     */
+    static final class MapKeys {
+
+        private final FieldDescriptor field;
+        private final int expectedSize;
+        private final Set<Object> keys = new HashSet<>();
+        private int remainingAttempts;
+
+        private MapKeys(FieldDescriptor field, int expectedSize) {
+            this.field = field;
+            this.expectedSize = expectedSize;
+            this.remainingAttempts = expectedSize * MAX_KEY_GENERATION_ATTEMPTS_PER_MAP_ENTRY;
+        }
+
+        boolean isComplete() {
+            return keys.size() >= expectedSize || remainingAttempts <= 0;
+        }
+
+        /**
+         * @return whether the key is a new key of the map, which then needs a value
+         */
+        boolean add(Object key) {
+            remainingAttempts--;
+            return keys.add(key);
+        }
+
+        int size() {
+            return keys.size();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static java.lang.String.format;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import com.google.protobuf.ExtensionRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.jeasy.random.EasyRandomParameters;
+
+/**
+ * Protobuf specific randomization parameters, complementing {@link EasyRandomParameters}.
+ * They are taken into account when registering a {@link ProtobufRandomizerRegistry} explicitly:
+ * <pre>{@code
+ * EasyRandomParameters parameters = new EasyRandomParameters()
+ *     .randomizerRegistry(new ProtobufRandomizerRegistry(new ProtobufParameters().fieldPresenceProbability(0.5)));
+ * }</pre>
+ */
+public class ProtobufParameters {
+
+    public static final double DEFAULT_FIELD_PRESENCE_PROBABILITY = 1.0;
+
+    private double fieldPresenceProbability = DEFAULT_FIELD_PRESENCE_PROBABILITY;
+    private final Map<String, Double> fieldPresenceProbabilities = new HashMap<>();
+    private ExtensionRegistry extensionRegistry;
+    private EasyRandomParameters.Range<Integer> unknownFieldsCountRange = new EasyRandomParameters.Range<>(0, 0);
+    private Utf8StringProfile utf8StringProfile;
+    private ProtobufMessageProfile messageProfile;
+    private ProtobufGenerationStatistics generationStatistics;
+
+    public double getFieldPresenceProbability() {
+        return fieldPresenceProbability;
+    }
+
+    public void setFieldPresenceProbability(double fieldPresenceProbability) {
+        this.fieldPresenceProbability = fieldPresenceProbability;
+    }
+
+    public ExtensionRegistry getExtensionRegistry() {
+        return extensionRegistry;
+    }
+
+    public void setExtensionRegistry(ExtensionRegistry extensionRegistry) {
+        this.extensionRegistry = extensionRegistry;
+    }
+
+    public EasyRandomParameters.Range<Integer> getUnknownFieldsCountRange() {
+        return unknownFieldsCountRange;
+    }
+
+    public void setUnknownFieldsCountRange(EasyRandomParameters.Range<Integer> unknownFieldsCountRange) {
+        this.unknownFieldsCountRange = unknownFieldsCountRange;
+    }
+
+    public Utf8StringProfile getUtf8StringProfile() {
+        return utf8StringProfile;
+    }
+
+    public void setUtf8StringProfile(Utf8StringProfile utf8StringProfile) {
+        this.utf8StringProfile = utf8StringProfile;
+    }
+
+    public ProtobufMessageProfile getMessageProfile() {
+        return messageProfile;
+    }
+
+    public void setMessageProfile(ProtobufMessageProfile messageProfile) {
+        this.messageProfile = messageProfile;
+    }
+
+    public ProtobufGenerationStatistics getGenerationStatistics() {
+        return generationStatistics;
+    }
+
+    public void setGenerationStatistics(ProtobufGenerationStatistics generationStatistics) {
+        this.generationStatistics = generationStatistics;
+    }
+
+    /**
+     * Set the probability for a field that tracks presence to be set. Required and repeated fields are always
+     * populated. Proto3 implicit presence fields are populated too, unless a probability is set for the field itself
+     * with {@link #fieldPresenceProbability(String, double)}, or learnt by the {@link #messageProfile}.
+     *
+     * @param probability the probability, between 0 and 1
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     */
+    public ProtobufParameters fieldPresenceProbability(double probability) {
+        setFieldPresenceProbability(checkProbability(probability));
+        return this;
+    }
+
+    /**
+     * Set the probability for fields that track presence to be set, for a given field, oneof, extension or type.
+     * The most specific probability applies: field (or oneof), then containing message type, then default probability.
+     * A probability set for a proto3 implicit presence field itself also applies: the field is left to its default
+     * value otherwise, which is what a message where this field isn't set looks like.
+     *
+     * @param fullName full name of the field, oneof, extension or message type, e.g. {@code my.package.Person.nickname}
+     * @param probability the probability, between 0 and 1
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     */
+    public ProtobufParameters fieldPresenceProbability(String fullName, double probability) {
+        fieldPresenceProbabilities.put(fullName, checkProbability(probability));
+        return this;
+    }
+
+    /**
+     * Register extensions to generate. Extensions of a generated message type are populated like its other fields.
+     *
+     * @param extensionRegistry the registry of extensions to generate
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     */
+    public ProtobufParameters extensionRegistry(ExtensionRegistry extensionRegistry) {
+        setExtensionRegistry(extensionRegistry);
+        return this;
+    }
+
+    /**
+     * Set the range for the number of random unknown fields to add to each generated message.
+     *
+     * @param minUnknownFieldsCount minimum number of unknown fields
+     * @param maxUnknownFieldsCount maximum number of unknown fields
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     */
+    public ProtobufParameters unknownFieldsCountRange(int minUnknownFieldsCount, int maxUnknownFieldsCount) {
+        if (minUnknownFieldsCount < 0) {
+            throw new IllegalArgumentException("minUnknownFieldsCount must be >= 0");
+        }
+        if (minUnknownFieldsCount > maxUnknownFieldsCount) {
+            throw new IllegalArgumentException(
+                format(
+                    "minUnknownFieldsCount (%s) must be <= than maxUnknownFieldsCount (%s)",
+                    minUnknownFieldsCount,
+                    maxUnknownFieldsCount
+                )
+            );
+        }
+        setUnknownFieldsCountRange(new EasyRandomParameters.Range<>(minUnknownFieldsCount, maxUnknownFieldsCount));
+        return this;
+    }
+
+    /**
+     * Generate string fields directly in their UTF-8 encoded form, with the given mix of characters.
+     * Their length (in characters) is taken from {@link EasyRandomParameters#getStringLengthRange()}.
+     * Singular string fields of generated messages are then set from the encoded bytes,
+     * so that serializing them doesn't need to encode them again.
+     * By default, string fields are generated by the {@link String} randomizer of Easy Random.
+     *
+     * @param utf8StringProfile the mix of characters of generated strings
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     */
+    public ProtobufParameters utf8StringProfile(Utf8StringProfile utf8StringProfile) {
+        setUtf8StringProfile(utf8StringProfile);
+        return this;
+    }
+
+    /**
+     * Generate messages following the distribution of values observed in sample messages,
+     * for fields and oneofs that have been observed. Explicit field presence probabilities still take precedence.
+     * Observed presence also applies to proto3 implicit presence fields, which are left to their default value as
+     * often as in sample messages.
+     *
+     * @param messageProfile the profile built from sample messages
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     * @see ProtobufMessageProfiler
+     */
+    public ProtobufParameters messageProfile(ProtobufMessageProfile messageProfile) {
+        setMessageProfile(messageProfile);
+        return this;
+    }
+
+    /**
+     * Collect statistics of generated messages, e.g. to check the shape of a corpus before using it.
+     *
+     * @param generationStatistics the collector of statistics
+     * @return the current {@link ProtobufParameters} instance for method chaining
+     */
+    public ProtobufParameters generationStatistics(ProtobufGenerationStatistics generationStatistics) {
+        setGenerationStatistics(generationStatistics);
+        return this;
+    }
+
+    /**
+     * @return presence probabilities of specific fields, oneofs and types, sorted by full name
+     */
+    Map<String, Double> getFieldPresenceProbabilities() {
+        return Collections.unmodifiableMap(new TreeMap<>(fieldPresenceProbabilities));
+    }
+
+    double getFieldPresenceProbability(FieldDescriptor field) {
+        if (field.isRequired() || field.isRepeated()) {
+            return 1;
+        }
+        Double probability = fieldPresenceProbabilities.get(field.getFullName());
+        if (probability == null && messageProfile != null) {
+            // Profiled fields without presence tracking are left to their default value as often as observed
+            probability = messageProfile.getPresenceProbability(field);
+        }
+        if (probability == null) {
+            // Fields without presence tracking can't be distinguished from fields set to their default value
+            probability = field.hasPresence()
+                ? getFieldPresenceProbabilityForType(field.getContainingType().getFullName())
+                : 1;
+        }
+        return probability;
+    }
+
+    double getFieldPresenceProbability(OneofDescriptor oneof) {
+        Double probability = fieldPresenceProbabilities.get(oneof.getFullName());
+        if (probability == null && messageProfile != null) {
+            probability = messageProfile.getPresenceProbability(oneof);
+        }
+        if (probability == null) {
+            probability = getFieldPresenceProbabilityForType(oneof.getContainingType().getFullName());
+        }
+        return probability;
+    }
+
+    int nextCollectionSize(FieldDescriptor field, ProtobufGenerationContext context) {
+        Integer size = messageProfile != null ? messageProfile.nextCollectionSize(field, context.getRandom()) : null;
+        return size != null ? size : context.nextCollectionSize();
+    }
+
+    FieldDescriptor nextOneofCase(OneofDescriptor oneof, ProtobufGenerationContext context) {
+        Random random = context.getRandom();
+        FieldDescriptor selectedCase = messageProfile != null ? messageProfile.nextOneofCase(oneof, random) : null;
+        return selectedCase != null ? selectedCase : oneof.getField(random.nextInt(oneof.getFieldCount()));
+    }
+
+    private double getFieldPresenceProbabilityForType(String typeFullName) {
+        return fieldPresenceProbabilities.getOrDefault(typeFullName, fieldPresenceProbability);
+    }
+
+    private static double checkProbability(double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException(format("probability (%s) must be between 0 and 1", probability));
+        }
+        return probability;
+    }
+}
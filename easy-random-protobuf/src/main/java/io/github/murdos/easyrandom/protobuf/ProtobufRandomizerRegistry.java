@@ -26,18 +26,29 @@
 
 /**
  * A registry of randomizers for Protobuf messages.
- *
+ * It is registered automatically through SPI with default {@link ProtobufParameters},
+ * and can be registered explicitly with custom ones through {@link EasyRandomParameters#randomizerRegistry}.
  */
 @Priority(-2)
 public class ProtobufRandomizerRegistry implements RandomizerRegistry {
 
     private final ConcurrentHashMap<Class<?>, Randomizer<?>> randomizers = new ConcurrentHashMap<>();
+    private final ProtobufParameters protobufParameters;
     private EasyRandomParameters parameters;
     private ProtobufMessageBuilderCache protobufMessageBuilderCache;
 
+    public ProtobufRandomizerRegistry() {
+        this(new ProtobufParameters());
+    }
+
+    public ProtobufRandomizerRegistry(ProtobufParameters protobufParameters) {
+        this.protobufParameters = protobufParameters;
+    }
+
     @Override
     public void init(EasyRandomParameters parameters) {
         this.parameters = parameters;
+        this.randomizers.clear();
         this.protobufMessageBuilderCache = new ProtobufMessageBuilderCache(parameters);
     }
 
@@ -55,7 +66,13 @@ public Randomizer<?> getRandomizer(Class<?> type) {
         if (Message.class.isAssignableFrom(type)) {
             return randomizers.computeIfAbsent(
                 type,
-                clazz -> new ProtobufMessageRandomizer((Class<Message>) type, parameters, protobufMessageBuilderCache)
+                clazz ->
+                    new ProtobufMessageRandomizer(
+                        (Class<Message>) type,
+                        parameters,
+                        protobufParameters,
+                        protobufMessageBuilderCache
+                    )
             );
         }
         if (Message.Builder.class.isAssignableFrom(type)) {
@@ -65,6 +82,7 @@ public Randomizer<?> getRandomizer(Class<?> type) {
                     new ProtobufMessageBuilderRandomizer(
                         (Class<Message.Builder>) type,
                         parameters,
+                        protobufParameters,
                         protobufMessageBuilderCache
                     )
             );
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import java.util.Random;
+
+/**
+ * Mix of characters of random strings generated directly in their UTF-8 encoded form,
+ * expressed as the percentage of characters encoded with 1, 2, 3 and 4 bytes.
+ */
+public enum Utf8StringProfile {
+    /**
+     * Printable ASCII characters only.
+     */
+    ASCII(100, 0, 0, 0),
+    /**
+     * Mostly non-ASCII characters, e.g. accented latin letters, greek, cyrillic and CJK characters.
+     */
+    MULTI_BYTE(20, 30, 50, 0),
+    /**
+     * Printable ASCII characters mixed with emojis, which are encoded with 4 bytes.
+     */
+    EMOJI(50, 0, 0, 50);
+
+    private static final int SURROGATES_COUNT = Character.MAX_SURROGATE - Character.MIN_SURROGATE + 1;
+
+    private final int oneByteThreshold;
+    private final int twoBytesThreshold;
+    private final int threeBytesThreshold;
+
+    Utf8StringProfile(int oneByteRatio, int twoBytesRatio, int threeBytesRatio, int fourBytesRatio) {
+        this.oneByteThreshold = oneByteRatio;
+        this.twoBytesThreshold = oneByteThreshold + twoBytesRatio;
+        this.threeBytesThreshold = twoBytesThreshold + threeBytesRatio;
+    }
+
+    /**
+     * @param length number of characters (code points) of the string
+     * @param random source of randomness
+     * @return a random UTF-8 encoded string
+     */
+    ByteString randomUtf8(int length, Random random) {
+        // Code points are drawn first, so that the encoded string is written once into an exactly sized array
+        int[] codePoints = new int[length];
+        int encodedLength = 0;
+        for (int i = 0; i < length; i++) {
+            codePoints[i] = randomCodePoint(random);
+            encodedLength += encodedLength(codePoints[i]);
+        }
+        byte[] buffer = new byte[encodedLength];
+        int position = 0;
+        for (int codePoint : codePoints) {
+            position = encode(codePoint, buffer, position);
+        }
+        // The array isn't referenced anywhere else, so it can safely back the ByteString without being copied
+        return UnsafeByteOperations.unsafeWrap(buffer);
+    }
+
+    private int randomCodePoint(Random random) {
+        int encodedLength = random.nextInt(100);
+        if (encodedLength < oneByteThreshold) {
+            return randomCodePointBetween(0x20, 0x7E, random);
+        } else if (encodedLength < twoBytesThreshold) {
+            return randomCodePointBetween(0xA0, 0x7FF, random);
+        } else if (encodedLength < threeBytesThreshold) {
+            // Skip surrogates, which are not valid code points on their own
+            int codePoint = randomCodePointBetween(0x800, 0xFFFD - SURROGATES_COUNT, random);
+            return codePoint < Character.MIN_SURROGATE ? codePoint : codePoint + SURROGATES_COUNT;
+        } else {
+            return randomCodePointBetween(0x1F300, 0x1FAFF, random);
+        }
+    }
+
+    private static int randomCodePointBetween(int min, int max, Random random) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private static int encodedLength(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        } else if (codePoint < 0x800) {
+            return 2;
+        } else if (codePoint < 0x10000) {
+            return 3;
+        }
+        return 4;
+    }
+
+    private static int encode(int codePoint, byte[] buffer, int position) {
+        if (codePoint < 0x80) {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (codePoint >>> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (codePoint >>> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (codePoint >>> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return position;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import com.google.protobuf.ExtensionRegistry;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.github.murdos.easyrandom.protobuf.testing.presence.EmbeddedOptionalFieldsMessage;
+import io.github.murdos.easyrandom.protobuf.testing.presence.OptionalFieldsMessage;
+import io.github.murdos.easyrandom.protobuf.testing.presence.Presence;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3OptionalFieldsMessage;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class FieldPresenceGenerationTest {
+
+    @Test
+    void shouldPopulateAllFieldsByDefault() {
+        EasyRandom easyRandom = new EasyRandom();
+
+        OptionalFieldsMessage protoInstance = easyRandom.nextObject(OptionalFieldsMessage.class);
+
+        assertThat(protoInstance.hasStringField()).isTrue();
+        assertThat(protoInstance.hasInt32Field()).isTrue();
+        assertThat(protoInstance.hasEmbeddedMessage()).isTrue();
+        assertThat(protoInstance.getOneofFieldCase())
+            .isNotEqualTo(OptionalFieldsMessage.OneofFieldCase.ONEOFFIELD_NOT_SET);
+        assertThat(protoInstance.hasExtension(Presence.stringExtension)).isFalse();
+        assertThat(protoInstance.getUnknownFields().asMap()).isEmpty();
+    }
+
+    @Test
+    void shouldLeaveOptionalFieldsUnsetWhenPresenceProbabilityIsZero() {
+        EasyRandom easyRandom = newEasyRandom(new ProtobufParameters().fieldPresenceProbability(0));
+
+        OptionalFieldsMessage protoInstance = easyRandom.nextObject(OptionalFieldsMessage.class);
+
+        assertThat(protoInstance.hasStringField()).isFalse();
+        assertThat(protoInstance.hasInt32Field()).isFalse();
+        assertThat(protoInstance.hasEmbeddedMessage()).isFalse();
+        assertThat(protoInstance.getOneofFieldCase())
+            .isEqualTo(OptionalFieldsMessage.OneofFieldCase.ONEOFFIELD_NOT_SET);
+        assertThat(protoInstance.hasRequiredField()).isTrue();
+        assertThat(protoInstance.getRepeatedFieldList()).isNotEmpty();
+    }
+
+    @Test
+    void shouldApplyTheMostSpecificPresenceProbability() {
+        ProtobufParameters protobufParameters = new ProtobufParameters()
+            .fieldPresenceProbability(0)
+            .fieldPresenceProbability(OptionalFieldsMessage.getDescriptor().getFullName(), 1)
+            .fieldPresenceProbability("OptionalFieldsMessage.int32Field", 0);
+        EasyRandom easyRandom = newEasyRandom(protobufParameters);
+
+        OptionalFieldsMessage protoInstance = easyRandom.nextObject(OptionalFieldsMessage.class);
+
+        assertThat(protoInstance.hasStringField()).isTrue();
+        assertThat(protoInstance.hasInt32Field()).isFalse();
+        assertThat(protoInstance.hasEmbeddedMessage()).isTrue();
+        assertThat(protoInstance.getEmbeddedMessage().hasStringField()).isFalse();
+    }
+
+    @Test
+    void shouldSetFieldsAccordingToPresenceProbability() {
+        EasyRandom easyRandom = newEasyRandom(new ProtobufParameters().fieldPresenceProbability(0.3));
+
+        long presentFieldsCount = easyRandom
+            .objects(OptionalFieldsMessage.class, 1000)
+            .filter(OptionalFieldsMessage::hasStringField)
+            .count();
+
+        assertThat(presentFieldsCount).isBetween(200L, 400L);
+    }
+
+    @Test
+    void shouldPopulateRegisteredExtensions() {
+        ExtensionRegistry extensionRegistry = ExtensionRegistry.newInstance();
+        Presence.registerAllExtensions(extensionRegistry);
+        EasyRandom easyRandom = newEasyRandom(new ProtobufParameters().extensionRegistry(extensionRegistry));
+
+        OptionalFieldsMessage protoInstance = easyRandom.nextObject(OptionalFieldsMessage.class);
+
+        assertThat(protoInstance.getExtension(Presence.stringExtension)).isNotBlank();
+        assertThat(protoInstance.getExtension(Presence.repeatedExtension)).isNotEmpty();
+        assertThat(protoInstance.getExtension(Presence.messageExtension).getStringField()).isNotBlank();
+    }
+
+    @Test
+    void shouldAddUnknownFields() throws InvalidProtocolBufferException {
+        EasyRandom easyRandom = newEasyRandom(new ProtobufParameters().unknownFieldsCountRange(3, 3));
+
+        EmbeddedOptionalFieldsMessage protoInstance = easyRandom.nextObject(EmbeddedOptionalFieldsMessage.class);
+
+        assertThat(protoInstance.getUnknownFields().asMap())
+            .hasSize(3)
+            .allSatisfy((number, field) -> assertThat(number).isGreaterThan(1));
+        assertThat(EmbeddedOptionalFieldsMessage.parseFrom(protoInstance.toByteString())).isEqualTo(protoInstance);
+    }
+
+    @Test
+    void shouldAddTheRequestedNumberOfUnknownFieldsOutsideOfExtensionRanges() {
+        EasyRandom easyRandom = newEasyRandom(new ProtobufParameters().unknownFieldsCountRange(150, 150));
+
+        OptionalFieldsMessage protoInstance = easyRandom.nextObject(OptionalFieldsMessage.class);
+
+        assertThat(protoInstance.getUnknownFields().asMap())
+            .hasSize(150)
+            .allSatisfy((number, field) ->
+                assertThat(OptionalFieldsMessage.getDescriptor().isExtensionNumber(number)).isFalse()
+            );
+    }
+
+    @Test
+    void shouldOnlyLeaveImplicitPresenceFieldsUnsetWithTheirOwnProbability() {
+        EasyRandom easyRandom = newEasyRandom(
+            new ProtobufParameters()
+                .fieldPresenceProbability(0)
+                .fieldPresenceProbability("Proto3Message", 0)
+                .fieldPresenceProbability("Proto3Message.int32Field", 0)
+        );
+
+        Proto3Message protoInstance = easyRandom.nextObject(Proto3Message.class);
+
+        assertThat(protoInstance.getStringField()).isNotEmpty();
+        assertThat(protoInstance.getInt32Field()).isZero();
+        assertThat(protoInstance.hasEmbeddedMessage()).isFalse();
+    }
+
+    @Test
+    void shouldApplyPresenceProbabilityOfProto3OptionalFields() throws IOException {
+        ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+        ProtobufParameters protobufParameters = new ProtobufParameters()
+            .fieldPresenceProbability("Proto3OptionalFieldsMessage.optionalField", 0)
+            .generationStatistics(statistics);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(
+            new EasyRandomParameters(),
+            protobufParameters
+        );
+        StringWriter json = new StringWriter();
+
+        Proto3OptionalFieldsMessage protoInstance = context.nextMessage(Proto3OptionalFieldsMessage.class);
+        Proto3OptionalFieldsMessage dynamicInstance = Proto3OptionalFieldsMessage.parseFrom(
+            new ProtobufDynamicMessageGenerator(protobufParameters)
+                .nextMessage(Proto3OptionalFieldsMessage.getDescriptor(), context)
+                .toByteString()
+        );
+        new ProtobufJsonWriter(protobufParameters).write(Proto3OptionalFieldsMessage.getDescriptor(), context, json);
+
+        assertThat(protoInstance.hasOptionalField()).isFalse();
+        assertThat(protoInstance.getImplicitField()).isNotEmpty();
+        assertThat(dynamicInstance.hasOptionalField()).isFalse();
+        assertThat(json.toString()).doesNotContain("optionalField").contains("implicitField");
+        // proto3 optional fields are wrapped into synthetic oneofs, which aren't oneofs of the message
+        assertThat(statistics.getOneofCaseCounts("Proto3OptionalFieldsMessage._optionalField")).isEmpty();
+        assertThat(new EasyRandom().nextObject(Proto3OptionalFieldsMessage.class).hasOptionalField()).isTrue();
+    }
+
+    @Test
+    void shouldRejectInvalidProbabilities() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new ProtobufParameters().fieldPresenceProbability(1.5));
+        assertThatIllegalArgumentException().isThrownBy(() -> new ProtobufParameters().unknownFieldsCountRange(2, 1));
+    }
+
+    private static EasyRandom newEasyRandom(ProtobufParameters protobufParameters) {
+        return new EasyRandom(
+            new EasyRandomParameters().randomizerRegistry(new ProtobufRandomizerRegistry(protobufParameters))
+        );
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.murdos.easyrandom.protobuf.testing.maps.MapsMessage;
+import java.util.Random;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class MapFieldGenerationTest {
+
+    @Test
+    void shouldGenerateMapsOfTheRequestedSizeDespiteDuplicateKeys() {
+        Random keysRandom = new Random(123L);
+        EasyRandomParameters parameters = new EasyRandomParameters()
+            .collectionSizeRange(10, 10)
+            .randomize(int.class, () -> keysRandom.nextInt(20));
+        EasyRandom easyRandom = new EasyRandom(parameters);
+
+        for (int i = 0; i < 20; i++) {
+            MapsMessage protoInstance = easyRandom.nextObject(MapsMessage.class);
+
+            assertThat(protoInstance.getInt32KeysMapMap()).hasSize(10);
+        }
+    }
+
+    @Test
+    void shouldStopGeneratingKeysWhenThereAreNotEnoughDistinctValues() {
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(5, 5);
+        EasyRandom easyRandom = new EasyRandom(parameters);
+
+        MapsMessage protoInstance = easyRandom.nextObject(MapsMessage.class);
+
+        assertThat(protoInstance.getBoolKeysMapMap()).hasSize(2);
+    }
+
+    @Test
+    void shouldGenerateLargeMapsWithMessageValues() {
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(1000, 1000);
+        EasyRandom easyRandom = new EasyRandom(parameters);
+
+        MapsMessage protoInstance = easyRandom.nextObject(MapsMessage.class);
+
+        assertThat(protoInstance.getMessageValuesMapMap())
+            .hasSize(1000)
+            .allSatisfy((key, value) -> assertThat(value.getStringField()).isNotBlank());
+    }
+}
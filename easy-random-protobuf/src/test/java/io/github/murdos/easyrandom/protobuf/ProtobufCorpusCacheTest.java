@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.ExtensionRegistry;
+import io.github.murdos.easyrandom.protobuf.testing.presence.OptionalFieldsMessage;
+import io.github.murdos.easyrandom.protobuf.testing.presence.Presence;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProtobufCorpusCacheTest {
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Test
+    void shouldReuseCachedCorpusWithoutGeneratingItAgain() throws IOException {
+        ProtobufCorpusCache corpusCache = new ProtobufCorpusCache(cacheDirectory.resolve("corpora"));
+        EasyRandomParameters parameters = new EasyRandomParameters().seed(123L);
+
+        List<Proto3Message> corpus = corpusCache.getCorpus(Proto3Message.class, 100, parameters);
+        Path corpusFile = corpusCache.getCorpusFile(Proto3Message.class, 100, parameters, new ProtobufParameters());
+        FileTime generationTime = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(corpusFile, generationTime);
+        List<Proto3Message> cachedCorpus = corpusCache.getCorpus(
+            Proto3Message.class,
+            100,
+            new EasyRandomParameters().seed(123L)
+        );
+
+        assertThat(corpus).hasSize(100).doesNotHaveDuplicates();
+        assertThat(cachedCorpus).isEqualTo(corpus);
+        assertThat(Files.getLastModifiedTime(corpusFile)).isEqualTo(generationTime);
+    }
+
+    @Test
+    void shouldStoreCorporaOfDifferentParametersSeparately() throws IOException {
+        ProtobufCorpusCache corpusCache = new ProtobufCorpusCache(cacheDirectory);
+        EasyRandomParameters parameters = new EasyRandomParameters().seed(123L);
+        EasyRandomParameters otherSeedParameters = new EasyRandomParameters().seed(456L);
+        EasyRandomParameters otherSizeParameters = new EasyRandomParameters().seed(123L).collectionSizeRange(0, 1);
+        ProtobufParameters protobufParameters = new ProtobufParameters();
+
+        Path corpusFile = corpusCache.getCorpusFile(Proto3Message.class, 0, parameters, protobufParameters);
+
+        assertThat(corpusCache.getCorpusFile(Proto3Message.class, 0, parameters, new ProtobufParameters()))
+            .isEqualTo(corpusFile);
+        assertThat(corpusCache.getCorpusFile(Proto3Message.class, 0, otherSeedParameters, protobufParameters))
+            .isNotEqualTo(corpusFile);
+        assertThat(corpusCache.getCorpusFile(Proto3Message.class, 0, otherSizeParameters, protobufParameters))
+            .isNotEqualTo(corpusFile);
+        assertThat(
+            corpusCache.getCorpusFile(
+                Proto3Message.class,
+                0,
+                new EasyRandomParameters().seed(123L),
+                new ProtobufParameters().fieldPresenceProbability("Proto3Message.stringField", 0.5)
+            )
+        )
+            .isNotEqualTo(corpusFile);
+    }
+
+    @Test
+    void shouldIdentifyMessageProfilesByTheirContent() throws IOException {
+        ProtobufCorpusCache corpusCache = new ProtobufCorpusCache(cacheDirectory);
+        EasyRandomParameters parameters = new EasyRandomParameters();
+        List<Proto3Message> samples = new ProtobufGenerationContext(parameters, new ProtobufParameters())
+            .nextBatch(Proto3Message.class, 20);
+        List<Proto3Message> reversedSamples = new ArrayList<>(samples);
+        Collections.reverse(reversedSamples);
+
+        Path corpusFile = corpusCache.getCorpusFile(Proto3Message.class, 0, parameters, profiledParameters(samples));
+
+        assertThat(corpusCache.getCorpusFile(Proto3Message.class, 0, parameters, profiledParameters(reversedSamples)))
+            .isEqualTo(corpusFile);
+        assertThat(
+            corpusCache.getCorpusFile(Proto3Message.class, 0, parameters, profiledParameters(samples.subList(0, 10)))
+        )
+            .isNotEqualTo(corpusFile);
+    }
+
+    @Test
+    void shouldReadCachedCorporaWithExtensions() throws IOException {
+        ExtensionRegistry extensionRegistry = ExtensionRegistry.newInstance();
+        Presence.registerAllExtensions(extensionRegistry);
+        ProtobufParameters protobufParameters = new ProtobufParameters().extensionRegistry(extensionRegistry);
+        EasyRandomParameters parameters = new EasyRandomParameters();
+        ProtobufCorpusCache corpusCache = new ProtobufCorpusCache(cacheDirectory);
+
+        List<OptionalFieldsMessage> corpus = corpusCache.getCorpus(
+            OptionalFieldsMessage.class,
+            10,
+            parameters,
+            protobufParameters
+        );
+
+        assertThat(corpus)
+            .hasSize(10)
+            .allSatisfy(message -> assertThat(message.hasExtension(Presence.stringExtension)).isTrue());
+        List<OptionalFieldsMessage> streamedCorpus = new ArrayList<>();
+        Path corpusFile = corpusCache.getCorpusFile(OptionalFieldsMessage.class, 10, parameters, protobufParameters);
+        try (InputStream in = Files.newInputStream(corpusFile)) {
+            OptionalFieldsMessage message;
+            while ((message = OptionalFieldsMessage.parseDelimitedFrom(in, extensionRegistry)) != null) {
+                streamedCorpus.add(message);
+            }
+        }
+        assertThat(streamedCorpus).isEqualTo(corpus);
+        try (Stream<Path> cachedFiles = Files.list(cacheDirectory)) {
+            assertThat(cachedFiles).containsExactly(corpusFile);
+        }
+    }
+
+    @Test
+    void shouldIdentifyExtensionsByTheirSchema() throws IOException, DescriptorValidationException {
+        ProtobufCorpusCache corpusCache = new ProtobufCorpusCache(cacheDirectory);
+        EasyRandomParameters parameters = new EasyRandomParameters();
+
+        Path corpusFile = corpusCache.getCorpusFile(
+            OptionalFieldsMessage.class,
+            0,
+            parameters,
+            extensionParameters(FieldDescriptorProto.Type.TYPE_STRING)
+        );
+
+        assertThat(
+            corpusCache.getCorpusFile(
+                OptionalFieldsMessage.class,
+                0,
+                parameters,
+                extensionParameters(FieldDescriptorProto.Type.TYPE_STRING)
+            )
+        )
+            .isEqualTo(corpusFile);
+        assertThat(
+            corpusCache.getCorpusFile(
+                OptionalFieldsMessage.class,
+                0,
+                parameters,
+                extensionParameters(FieldDescriptorProto.Type.TYPE_INT32)
+            )
+        )
+            .isNotEqualTo(corpusFile);
+    }
+
+    private static ProtobufParameters extensionParameters(FieldDescriptorProto.Type extensionType)
+        throws DescriptorValidationException {
+        FileDescriptor presenceFile = OptionalFieldsMessage.getDescriptor().getFile();
+        FileDescriptorProto extensionFile = FileDescriptorProto.newBuilder()
+            .setName("extensions.proto")
+            .addDependency(presenceFile.getName())
+            .addExtension(
+                FieldDescriptorProto.newBuilder()
+                    .setName("dynamicExtension")
+                    .setNumber(150)
+                    .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)
+                    .setType(extensionType)
+                    .setExtendee(".OptionalFieldsMessage")
+            )
+            .build();
+        ExtensionRegistry extensionRegistry = ExtensionRegistry.newInstance();
+        extensionRegistry.add(
+            FileDescriptor.buildFrom(extensionFile, new FileDescriptor[] { presenceFile }).getExtensions().get(0)
+        );
+        return new ProtobufParameters().extensionRegistry(extensionRegistry);
+    }
+
+    private static ProtobufParameters profiledParameters(List<Proto3Message> samples) {
+        ProtobufMessageProfiler profiler = new ProtobufMessageProfiler();
+        samples.forEach(profiler::record);
+        return new ProtobufParameters().messageProfile(profiler.getProfile());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.github.murdos.easyrandom.protobuf.testing.proto2.Proto2Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto2.RecursiveProto2Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.recursion.Genealogy;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class ProtobufDynamicMessageGeneratorTest {
+
+    @Test
+    void shouldGenerateProto3Messages() throws InvalidProtocolBufferException {
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(3, 3);
+        ProtobufDynamicMessageGenerator generator = new ProtobufDynamicMessageGenerator(
+            new ProtobufParameters().utf8StringProfile(Utf8StringProfile.MULTI_BYTE)
+        );
+
+        DynamicMessage message = generate(generator, Proto3Message.getDescriptor(), parameters);
+
+        Proto3Message protoInstance = Proto3Message.parseFrom(message.toByteString());
+        assertThat(protoInstance.getStringField()).isNotBlank();
+        assertThat(protoInstance.getStringValueField().getValue()).isNotBlank();
+        assertThat(protoInstance.getEmbeddedMessage().getStringField()).isNotBlank();
+        assertThat(protoInstance.getRepeatedStringFieldList()).hasSize(3);
+        assertThat(protoInstance.getMapFieldMap()).hasSize(3);
+        assertThat(protoInstance.getOneofFieldCase()).isNotEqualTo(Proto3Message.OneofFieldCase.ONEOFFIELD_NOT_SET);
+    }
+
+    @Test
+    void shouldGenerateProto2MessagesWithAllRequiredFields() throws InvalidProtocolBufferException {
+        DynamicMessage message = generate(
+            new ProtobufDynamicMessageGenerator(),
+            Proto2Message.getDescriptor(),
+            new EasyRandomParameters()
+        );
+
+        assertThat(message.isInitialized()).isTrue();
+        assertThat(Proto2Message.parseFrom(message.toByteString()).isInitialized()).isTrue();
+    }
+
+    @Test
+    void shouldStopInfiniteRecursion() throws InvalidProtocolBufferException {
+        DynamicMessage message = generate(
+            new ProtobufDynamicMessageGenerator(),
+            Genealogy.Person.getDescriptor(),
+            new EasyRandomParameters()
+        );
+
+        Genealogy.Person protoInstance = Genealogy.Person.parseFrom(message.toByteString());
+        assertThat(protoInstance.getName()).isNotBlank();
+        assertThat(protoInstance.getParent()).isEqualTo(Genealogy.Person.getDefaultInstance());
+        assertThat(protoInstance.getFamily().getMembersList()).isNotEmpty();
+    }
+
+    @Test
+    void shouldGenerateRequiredFieldsWhenStoppingInfiniteRecursion() throws InvalidProtocolBufferException {
+        DynamicMessage message = generate(
+            new ProtobufDynamicMessageGenerator(),
+            RecursiveProto2Message.getDescriptor(),
+            new EasyRandomParameters()
+        );
+
+        RecursiveProto2Message child = RecursiveProto2Message.parseFrom(message.toByteString()).getChild();
+        assertThat(child.isInitialized()).isTrue();
+        assertThat(child.getName()).isNotBlank();
+        assertThat(child.getEmbeddedMessage().getStringField()).isNotBlank();
+        assertThat(child.hasChild()).isFalse();
+    }
+
+    @Test
+    void shouldGenerateTheSameMessageForTheSameSeed() {
+        ProtobufDynamicMessageGenerator generator = new ProtobufDynamicMessageGenerator(
+            new ProtobufParameters().fieldPresenceProbability(0.5).unknownFieldsCountRange(0, 3)
+        );
+
+        DynamicMessage firstMessage = generate(
+            generator,
+            Proto3Message.getDescriptor(),
+            new EasyRandomParameters().seed(123L)
+        );
+        DynamicMessage secondMessage = generate(
+            generator,
+            Proto3Message.getDescriptor(),
+            new EasyRandomParameters().seed(123L)
+        );
+
+        assertThat(firstMessage).isEqualTo(secondMessage);
+    }
+
+    private static DynamicMessage generate(
+        ProtobufDynamicMessageGenerator generator,
+        Descriptor descriptor,
+        EasyRandomParameters parameters
+    ) {
+        ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, new ProtobufParameters());
+        return generator.nextMessage(descriptor, context);
+    }
+}
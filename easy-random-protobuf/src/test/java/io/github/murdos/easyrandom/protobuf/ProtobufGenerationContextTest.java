@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.recursion.Genealogy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class ProtobufGenerationContextTest {
+
+    @Test
+    void shouldGenerateMessagesWithinAnExplicitContext() {
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(3, 3);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, new ProtobufParameters(), 123L);
+
+        Proto3Message protoInstance = context.nextMessage(Proto3Message.class);
+
+        assertThat(protoInstance.getStringField()).isNotBlank();
+        assertThat(protoInstance.getEmbeddedMessage().getStringField()).isNotBlank();
+        assertThat(protoInstance.getRepeatedStringFieldList()).hasSize(3);
+        assertThat(protoInstance.getMapFieldMap()).hasSize(3);
+        assertThat(context.nextMessage(Proto3Message.class)).isNotEqualTo(protoInstance);
+    }
+
+    @Test
+    void shouldGenerateBatchesOfMessages() {
+        ProtobufGenerationContext context = new ProtobufGenerationContext(
+            new EasyRandomParameters(),
+            new ProtobufParameters()
+        );
+
+        List<Proto3Message> batch = context.nextBatch(Proto3Message.class, 100);
+        Proto3Message[] array = new Proto3Message[10];
+        context.nextBatch(Proto3Message.class, array);
+        List<Proto3Message> list = new ArrayList<>(batch);
+        context.nextBatch(Proto3Message.class, 5, list);
+
+        assertThat(batch).hasSize(100).doesNotHaveDuplicates().allMatch(Proto3Message::hasEmbeddedMessage);
+        assertThat(array).doesNotContainNull().doesNotContainAnyElementsOf(batch);
+        assertThat(list).hasSize(105).startsWith(batch.toArray(Proto3Message[]::new));
+    }
+
+    @Test
+    void shouldGenerateTheSameBatchForTheSameSeed() {
+        EasyRandomParameters parameters = new EasyRandomParameters();
+        ProtobufParameters protobufParameters = new ProtobufParameters();
+
+        ProtobufGenerationContext firstContext = new ProtobufGenerationContext(parameters, protobufParameters, 123L);
+        ProtobufGenerationContext secondContext = new ProtobufGenerationContext(parameters, protobufParameters, 123L);
+
+        List<Proto3Message> firstBatch = firstContext.nextBatch(Proto3Message.class, 10);
+        List<Proto3Message> secondBatch = secondContext.nextBatch(Proto3Message.class, 10);
+
+        assertThat(firstBatch).hasSize(10).doesNotHaveDuplicates().isEqualTo(secondBatch);
+    }
+
+    @Test
+    void shouldHandleInfiniteRecursionWithinAnExplicitContext() {
+        EasyRandomParameters parameters = new EasyRandomParameters().objectPoolSize(2);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, new ProtobufParameters());
+
+        Genealogy.Person person = context.nextMessage(Genealogy.Person.class);
+
+        assertThat(person.getParent()).isNotNull().isNotEqualTo(person);
+    }
+
+    @Test
+    void shouldApplyProtobufParametersToSubMessages() {
+        ProtobufParameters protobufParameters = new ProtobufParameters().unknownFieldsCountRange(2, 2);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(
+            new EasyRandomParameters(),
+            protobufParameters
+        );
+
+        Proto3Message protoInstance = context.nextMessage(Proto3Message.class);
+
+        assertThat(protoInstance.getUnknownFields().asMap()).hasSize(2);
+        assertThat(protoInstance.getEmbeddedMessage().getUnknownFields().asMap()).hasSize(2);
+    }
+
+    @Test
+    void shouldNotDependOnEasyRandomInstancesCreatedFromTheSameParameters() {
+        EasyRandomParameters parameters = new EasyRandomParameters();
+        ProtobufParameters protobufParameters = new ProtobufParameters();
+        List<Proto3Message> batch = new ProtobufGenerationContext(parameters, protobufParameters, 123L)
+            .nextBatch(Proto3Message.class, 10);
+
+        EasyRandom easyRandom = new EasyRandom(parameters);
+        easyRandom.nextObject(Proto3Message.class);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters, 123L);
+        easyRandom.nextObject(Proto3Message.class);
+
+        assertThat(context.nextBatch(Proto3Message.class, 10)).isEqualTo(batch);
+    }
+
+    @Test
+    void shouldGenerateConcurrentlyWithOneContextPerTask() throws Exception {
+        EasyRandomParameters parameters = new EasyRandomParameters().objectPoolSize(2);
+        ProtobufParameters protobufParameters = new ProtobufParameters();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Genealogy.Person>>> futures = new ArrayList<>();
+            for (int task = 0; task < 32; task++) {
+                ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, protobufParameters, task);
+                futures.add(executor.submit(() -> generatePersons(context)));
+            }
+
+            for (int task = 0; task < futures.size(); task++) {
+                List<Genealogy.Person> sequentialPersons = generatePersons(
+                    new ProtobufGenerationContext(parameters, protobufParameters, task)
+                );
+                assertThat(futures.get(task).get())
+                    .hasSize(50)
+                    .allSatisfy(person -> assertThat(person.hasParent()).isTrue())
+                    .isEqualTo(sequentialPersons);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Genealogy.Person> generatePersons(ProtobufGenerationContext context) {
+        List<Genealogy.Person> persons = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            persons.add(context.nextMessage(Genealogy.Person.class));
+        }
+        return persons;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.google.protobuf.Message;
+import io.github.murdos.easyrandom.protobuf.testing.maps.MapsMessage;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.EmbeddedProto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.recursion.Genealogy;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class ProtobufGenerationStatisticsTest {
+
+    @Test
+    void shouldCollectSerializedSizesPerMessageType() {
+        ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+
+        List<Proto3Message> protoInstances = generate(
+            statistics,
+            new EasyRandomParameters(),
+            Proto3Message.class,
+            1000
+        );
+
+        String messageType = Proto3Message.getDescriptor().getFullName();
+        double averageSize = protoInstances.stream().mapToInt(Proto3Message::getSerializedSize).average().orElseThrow();
+        int maxSize = protoInstances.stream().mapToInt(Proto3Message::getSerializedSize).max().orElseThrow();
+        assertThat(statistics.getMessageCount(messageType)).isEqualTo(1000);
+        assertThat(statistics.getAverageSerializedSize(messageType)).isCloseTo(averageSize, within(0.001));
+        assertThat(statistics.getSerializedSizePercentile(messageType, 100)).isBetween(maxSize, maxSize * 17 / 16);
+        assertThat(statistics.getSerializedSizePercentile(messageType, 99))
+            .isLessThanOrEqualTo(statistics.getSerializedSizePercentile(messageType, 100))
+            .isGreaterThanOrEqualTo(statistics.getSerializedSizePercentile(messageType, 50));
+        assertThat(statistics.getMessageCount(EmbeddedProto3Message.getDescriptor().getFullName()))
+            .isGreaterThanOrEqualTo(1000);
+    }
+
+    @Test
+    void shouldCollectCollectionSizesAndOneofCases() {
+        ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(5, 5);
+
+        generate(statistics, parameters, Proto3Message.class, 1000);
+        generate(statistics, parameters, MapsMessage.class, 10);
+
+        assertThat(statistics.getAverageCollectionSize("Proto3Message.repeatedStringField")).isEqualTo(5);
+        assertThat(statistics.getAverageCollectionSize("MapsMessage.boolKeysMap")).isEqualTo(2);
+        Map<String, Long> oneofCases = statistics.getOneofCaseCounts("Proto3Message.oneofField");
+        assertThat(oneofCases).containsOnlyKeys("firstChoice", "secondChoice", "thirdChoice", "forthChoice");
+        assertThat(oneofCases.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(1000);
+        assertThat(statistics.report())
+            .contains("  Proto3Message: count=1000 ")
+            .contains("  Proto3Message.repeatedStringField: count=1000 avg=5.0 p50<=5 p99<=5 max<=5")
+            .contains("  Proto3Message.oneofField: firstChoice=")
+            .contains("Recursion cache: 0 reused");
+    }
+
+    @Test
+    void shouldCollectRecursionCacheReuseRate() {
+        ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+
+        generate(statistics, new EasyRandomParameters().collectionSizeRange(1, 2), Genealogy.Person.class, 10);
+
+        assertThat(statistics.getBuilderCacheReuseRate()).isBetween(0.0, 1.0).isNotZero();
+    }
+
+    @Test
+    void shouldCollectStatisticsOfMessagesWrittenAsJson() throws IOException {
+        ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+        ProtobufParameters protobufParameters = new ProtobufParameters().generationStatistics(statistics);
+        ProtobufJsonWriter jsonWriter = new ProtobufJsonWriter(protobufParameters);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(
+            new EasyRandomParameters().collectionSizeRange(5, 5),
+            protobufParameters
+        );
+        StringWriter json = new StringWriter();
+
+        jsonWriter.write(Proto3Message.getDescriptor(), context, json);
+
+        String messageType = Proto3Message.getDescriptor().getFullName();
+        assertThat(statistics.getMessageCount(messageType)).isEqualTo(1);
+        assertThat(statistics.getAverageJsonSize(messageType)).isEqualTo(json.toString().length());
+        assertThat(statistics.getAverageSerializedSize(messageType)).isZero();
+        assertThat(statistics.getAverageCollectionSize("Proto3Message.repeatedStringField")).isEqualTo(5);
+        assertThat(statistics.getOneofCaseCounts("Proto3Message.oneofField").values()).containsExactly(1L);
+        assertThat(statistics.report())
+            .contains("JSON sizes (characters):\n")
+            .contains("  Proto3Message: count=1 avg=" + json.toString().length() + ".0 ");
+    }
+
+    @Test
+    void shouldCollectStatisticsOfConcurrentGenerations() throws Exception {
+        ProtobufGenerationStatistics statistics = new ProtobufGenerationStatistics();
+        ProtobufParameters protobufParameters = new ProtobufParameters().generationStatistics(statistics);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Proto3Message>>> tasks = IntStream
+                .range(0, 8)
+                .mapToObj(task ->
+                    executor.submit(() ->
+                        new ProtobufGenerationContext(new EasyRandomParameters(), protobufParameters, task)
+                            .nextBatch(Proto3Message.class, 500)
+                    )
+                )
+                .toList();
+            for (Future<List<Proto3Message>> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(statistics.getMessageCount(Proto3Message.getDescriptor().getFullName())).isEqualTo(4000);
+        Map<String, Long> oneofCases = statistics.getOneofCaseCounts("Proto3Message.oneofField");
+        assertThat(oneofCases.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(4000);
+    }
+
+    private static <M extends Message> List<M> generate(
+        ProtobufGenerationStatistics statistics,
+        EasyRandomParameters parameters,
+        Class<M> messageClass,
+        int count
+    ) {
+        ProtobufParameters protobufParameters = new ProtobufParameters().generationStatistics(statistics);
+        return new ProtobufGenerationContext(parameters, protobufParameters)
+            .nextBatch(messageClass, count);
+    }
+}
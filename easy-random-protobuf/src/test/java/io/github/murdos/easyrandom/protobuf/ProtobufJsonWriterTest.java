@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import io.github.murdos.easyrandom.protobuf.testing.proto2.Proto2Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto2.RecursiveProto2Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.recursion.Genealogy;
+import io.github.murdos.easyrandom.protobuf.testing.wkt.WellKnownTypesMessage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class ProtobufJsonWriterTest {
+
+    @Test
+    void shouldWriteJsonOfProto3Messages() throws InvalidProtocolBufferException {
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(3, 3);
+        String json = writeJson(new ProtobufJsonWriter(), Proto3Message.getDescriptor(), parameters);
+
+        Proto3Message protoInstance = parse(json, Proto3Message.newBuilder());
+
+        assertThat(protoInstance.getStringField()).isNotBlank();
+        assertThat(protoInstance.getStringValueField().getValue()).isNotBlank();
+        assertThat(protoInstance.getEmbeddedMessage().getStringField()).isNotBlank();
+        assertThat(protoInstance.getRepeatedStringFieldList()).hasSize(3);
+        assertThat(protoInstance.getMapFieldMap()).hasSize(3);
+        assertThat(protoInstance.getOneofFieldCase()).isNotEqualTo(Proto3Message.OneofFieldCase.ONEOFFIELD_NOT_SET);
+    }
+
+    @Test
+    void shouldWriteJsonOfProto2MessagesWithAllRequiredFields() throws InvalidProtocolBufferException {
+        String json = writeJson(new ProtobufJsonWriter(), Proto2Message.getDescriptor(), new EasyRandomParameters());
+
+        Proto2Message protoInstance = parse(json, Proto2Message.newBuilder());
+
+        assertThat(protoInstance.isInitialized()).isTrue();
+    }
+
+    @Test
+    void shouldWriteJsonOfWellKnownTypes() throws InvalidProtocolBufferException {
+        EasyRandomParameters parameters = new EasyRandomParameters().collectionSizeRange(5, 5);
+        String json = writeJson(new ProtobufJsonWriter(), WellKnownTypesMessage.getDescriptor(), parameters);
+
+        WellKnownTypesMessage protoInstance = parse(json, WellKnownTypesMessage.newBuilder());
+
+        assertThat(protoInstance.hasTimestampField()).isTrue();
+        assertThat(protoInstance.hasDurationField()).isTrue();
+        assertThat(protoInstance.getRepeatedTimestampFieldList()).hasSize(5);
+        assertThat(protoInstance.getBytesValueField().getValue()).isNotEmpty();
+        assertThat(protoInstance.getDurationsMapMap()).hasSize(5);
+        assertThat(protoInstance.getBoolKeysMapMap()).hasSize(2);
+    }
+
+    @Test
+    void shouldStopInfiniteRecursion() throws InvalidProtocolBufferException {
+        String json = writeJson(new ProtobufJsonWriter(), Genealogy.Person.getDescriptor(), new EasyRandomParameters());
+
+        Genealogy.Person protoInstance = parse(json, Genealogy.Person.newBuilder());
+
+        assertThat(protoInstance.getName()).isNotBlank();
+        assertThat(protoInstance.getParent()).isEqualTo(Genealogy.Person.getDefaultInstance());
+        assertThat(protoInstance.getFamily().getMembersList()).isNotEmpty();
+    }
+
+    @Test
+    void shouldWriteRequiredFieldsWhenStoppingInfiniteRecursion() throws InvalidProtocolBufferException {
+        String json = writeJson(
+            new ProtobufJsonWriter(),
+            RecursiveProto2Message.getDescriptor(),
+            new EasyRandomParameters()
+        );
+
+        RecursiveProto2Message protoInstance = parse(json, RecursiveProto2Message.newBuilder());
+
+        RecursiveProto2Message child = protoInstance.getChild();
+        assertThat(child.isInitialized()).isTrue();
+        assertThat(child.getName()).isNotBlank();
+        assertThat(child.getEmbeddedMessage().getStringField()).isNotBlank();
+        assertThat(child.hasChild()).isFalse();
+    }
+
+    @Test
+    void shouldWriteTheSameJsonForTheSameSeed() {
+        ProtobufJsonWriter jsonWriter = new ProtobufJsonWriter(new ProtobufParameters().fieldPresenceProbability(0.5));
+
+        String firstJson = writeJson(jsonWriter, Proto3Message.getDescriptor(), new EasyRandomParameters().seed(123L));
+        String secondJson = writeJson(jsonWriter, Proto3Message.getDescriptor(), new EasyRandomParameters().seed(123L));
+
+        assertThat(firstJson).isEqualTo(secondJson);
+    }
+
+    @Test
+    void shouldWriteUtf8EncodedJsonLinesThroughABufferedWriter() throws IOException {
+        ProtobufJsonWriter jsonWriter = new ProtobufJsonWriter(
+            new ProtobufParameters().utf8StringProfile(Utf8StringProfile.EMOJI)
+        );
+        ProtobufGenerationContext context = new ProtobufGenerationContext(
+            new EasyRandomParameters(),
+            new ProtobufParameters()
+        );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < 3; i++) {
+                jsonWriter.write(Proto3Message.getDescriptor(), context, writer);
+                writer.write('\n');
+            }
+        }
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(3).doesNotHaveDuplicates();
+        assertThat(lines.get(0))
+            .isEqualTo(writeJson(jsonWriter, Proto3Message.getDescriptor(), new EasyRandomParameters()));
+        for (String json : lines) {
+            Proto3Message protoInstance = parse(json, Proto3Message.newBuilder());
+            assertThat(protoInstance.getStringField()).isNotBlank();
+        }
+    }
+
+    private static String writeJson(
+        ProtobufJsonWriter jsonWriter,
+        Descriptor descriptor,
+        EasyRandomParameters parameters
+    ) {
+        StringWriter writer = new StringWriter();
+        try {
+            ProtobufGenerationContext context = new ProtobufGenerationContext(parameters, new ProtobufParameters());
+            jsonWriter.write(descriptor, context, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M extends Message> M parse(String json, Message.Builder builder)
+        throws InvalidProtocolBufferException {
+        JsonFormat.parser().merge(json, builder);
+        return (M) builder.build();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import io.github.murdos.easyrandom.protobuf.testing.proto2.EmbeddedProto2Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto2.Proto2Message;
+import org.junit.jupiter.api.Test;
+
+class ProtobufMessageGenerationPlanTest {
+
+    @Test
+    void shouldComputePlanOncePerMessageClass() {
+        ProtobufMessageGenerationPlan plan = ProtobufMessageGenerationPlan.forMessageClass(Proto2Message.class);
+
+        assertThat(ProtobufMessageGenerationPlan.forMessageClass(Proto2Message.class)).isSameAs(plan);
+        assertThat(plan.getDescriptor()).isEqualTo(Proto2Message.getDescriptor());
+    }
+
+    @Test
+    void shouldSeparatePlainFieldsFromOneofFields() {
+        ProtobufMessageGenerationPlan plan = ProtobufMessageGenerationPlan.forMessageClass(Proto2Message.class);
+
+        assertThat(plan.getPlainFields()).hasSize(20).allMatch(field -> field.getContainingOneof() == null);
+        assertThat(plan.getOneofs()).hasSize(1);
+    }
+
+    @Test
+    void shouldResolveMessageFieldTypesIncludingMapValues() {
+        ProtobufMessageGenerationPlan plan = ProtobufMessageGenerationPlan.forMessageClass(Proto2Message.class);
+        FieldDescriptor embeddedMessageField = Proto2Message.getDescriptor().findFieldByName("embeddedMessage");
+        FieldDescriptor mapValueField = Proto2Message
+            .getDescriptor()
+            .findFieldByName("mapField")
+            .getMessageType()
+            .findFieldByName("value");
+
+        assertThat(plan.getMessageFieldType(embeddedMessageField)).isEqualTo(EmbeddedProto2Message.class);
+        assertThat(plan.getMessageFieldType(mapValueField)).isEqualTo(EmbeddedProto2Message.class);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Message;
+import com.google.protobuf.Struct;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.recursion.Genealogy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class ProtobufMessageMutatorTest {
+
+    @Test
+    void shouldReturnAnEqualMessageWhenNoEditIsRequested() {
+        EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().seed(123L));
+        Proto3Message original = easyRandom.nextObject(Proto3Message.class);
+
+        Proto3Message mutated = new ProtobufMessageMutator(easyRandom).mutate(original, 0);
+
+        assertThat(mutated).isEqualTo(original);
+    }
+
+    @Test
+    void shouldProduceSuccessiveVersionsDifferingByOneFieldPerEdit() {
+        EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().seed(123L));
+        ProtobufMessageMutator mutator = new ProtobufMessageMutator(easyRandom);
+        Proto3Message previous = easyRandom.nextObject(Proto3Message.class);
+
+        for (int i = 0; i < 200; i++) {
+            Proto3Message next = mutator.mutate(previous, 1);
+
+            assertThat(editDistance(previous, next)).isEqualTo(1);
+            assertThat(next.getRepeatedStringFieldCount())
+                .isGreaterThanOrEqualTo(previous.getRepeatedStringFieldCount());
+            previous = next;
+        }
+    }
+
+    @Test
+    void shouldApplyExactlyTheRequestedNumberOfEdits() {
+        ProtobufMessageMutator mutator = new ProtobufMessageMutator(
+            new EasyRandom(new EasyRandomParameters().seed(123L))
+        );
+        // The only field of a Struct is a map whose values are always empty: an effective edit always adds an entry
+        Struct previous = Struct.getDefaultInstance();
+
+        for (int i = 0; i < 50; i++) {
+            Struct next = mutator.mutate(previous, 3);
+
+            assertThat(next.getFieldsCount()).isEqualTo(previous.getFieldsCount() + 3);
+            assertThat(next.getFieldsMap()).containsAllEntriesOf(previous.getFieldsMap());
+            previous = next;
+        }
+    }
+
+    @Test
+    void shouldEditDynamicMessages() {
+        EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().seed(123L));
+        ProtobufMessageMutator mutator = new ProtobufMessageMutator(easyRandom);
+        Message previous = DynamicMessage
+            .newBuilder(Proto3Message.getDescriptor())
+            .mergeFrom(easyRandom.nextObject(Proto3Message.class))
+            .build();
+
+        for (int i = 0; i < 50; i++) {
+            Message next = mutator.mutate(previous, 1);
+
+            assertThat(next).isInstanceOf(DynamicMessage.class);
+            assertThat(editDistance(previous, next)).isEqualTo(1);
+            previous = next;
+        }
+    }
+
+    @Test
+    void shouldRejectEditsOfMessagesWithoutFields() {
+        ProtobufMessageMutator mutator = new ProtobufMessageMutator(new EasyRandom());
+
+        assertThatThrownBy(() -> mutator.mutate(Empty.getDefaultInstance(), 1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldEditSubMessagesInPlace() {
+        EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().seed(123L));
+        ProtobufMessageMutator mutator = new ProtobufMessageMutator(easyRandom);
+        Genealogy.Person person = Genealogy.Person
+            .newBuilder()
+            .setParent(Genealogy.Person.getDefaultInstance())
+            .build();
+
+        Genealogy.Person mutated = person;
+        for (int i = 0; i < 20; i++) {
+            mutated = mutator.mutate(mutated, 1);
+        }
+
+        assertThat(mutated.hasParent()).isTrue();
+        assertThat(mutated).isNotEqualTo(person);
+    }
+
+    @Test
+    void shouldGenerateTheSameVersionsForTheSameSeed() {
+        EasyRandom easyRandom = new EasyRandom(new EasyRandomParameters().seed(42L));
+        Proto3Message original = easyRandom.nextObject(Proto3Message.class);
+
+        Proto3Message first = new ProtobufMessageMutator(new EasyRandom(new EasyRandomParameters().seed(123L)))
+            .mutate(original, 5);
+        Proto3Message second = new ProtobufMessageMutator(new EasyRandom(new EasyRandomParameters().seed(123L)))
+            .mutate(original, 5);
+
+        assertThat(first).isEqualTo(second).isNotEqualTo(original);
+    }
+
+    /**
+     * @return the number of top-level fields which differ, members of a same oneof counting as one field
+     */
+    private static int editDistance(Message first, Message second) {
+        Map<FieldDescriptor, Object> firstFields = first.getAllFields();
+        Map<FieldDescriptor, Object> secondFields = second.getAllFields();
+        Set<FieldDescriptor> fields = new HashSet<>(firstFields.keySet());
+        fields.addAll(secondFields.keySet());
+        Map<Object, Boolean> changedFields = new HashMap<>();
+        for (FieldDescriptor field : fields) {
+            Object fieldOrOneof = field.getRealContainingOneof() != null ? field.getRealContainingOneof() : field;
+            boolean changed = !Objects.equals(firstFields.get(field), secondFields.get(field));
+            changedFields.merge(fieldOrOneof, changed, Boolean::logicalOr);
+        }
+        return (int) changedFields.values().stream().filter(Boolean::booleanValue).count();
+    }
+}
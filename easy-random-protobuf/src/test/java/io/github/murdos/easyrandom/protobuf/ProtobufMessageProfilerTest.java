@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.OneofDescriptor;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.EmbeddedProto3Message;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Enum;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+
+class ProtobufMessageProfilerTest {
+
+    private static final int SAMPLES_COUNT = 2000;
+
+    @Test
+    void shouldGenerateMessagesFollowingTheProfileOfSampleMessages() {
+        ProtobufMessageProfiler profiler = new ProtobufMessageProfiler();
+        sampleMessages().forEach(profiler::record);
+
+        List<Proto3Message> protoInstances = generate(profiler.getProfile());
+
+        assertThat(ratio(protoInstances, message -> message.getEnumField() == Proto3Enum.FIRST_VALUE))
+            .isCloseTo(0.9, within(0.05));
+        assertThat(ratio(protoInstances, Proto3Message::hasEmbeddedMessage)).isCloseTo(0.25, within(0.05));
+        assertThat(ratio(protoInstances, message -> message.getInt32Field() == 0)).isCloseTo(0.5, within(0.05));
+        assertThat(ratio(protoInstances, message -> message.hasSecondChoice())).isCloseTo(0.8, within(0.05));
+        assertThat(ratio(protoInstances, message -> !message.hasFirstChoice() && !message.hasSecondChoice()))
+            .isCloseTo(0.2, within(0.05));
+        assertThat(protoInstances)
+            .allSatisfy(message -> {
+                assertThat(message.getStringField()).hasSizeBetween(3, 4);
+                // Large lengths are profiled per power of two
+                assertThat(message.getBytesField().size()).isBetween(512, 2047);
+                assertThat(message.getRepeatedStringFieldCount()).isIn(0, 2);
+                assertThat(message.getMapFieldCount()).isEqualTo(1);
+                assertThat(message.hasThirdChoice() || message.hasForthChoice()).isFalse();
+            });
+    }
+
+    @Test
+    void shouldGenerateTheSameMessagesFromADeserializedProfile() throws IOException, ClassNotFoundException {
+        ProtobufMessageProfiler profiler = new ProtobufMessageProfiler();
+        ByteArrayOutputStream delimitedSamples = new ByteArrayOutputStream();
+        for (Proto3Message sampleMessage : sampleMessages()) {
+            sampleMessage.writeDelimitedTo(delimitedSamples);
+        }
+        profiler.recordDelimited(
+            Proto3Message.getDescriptor(),
+            new ByteArrayInputStream(delimitedSamples.toByteArray())
+        );
+
+        ByteArrayOutputStream serializedProfile = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serializedProfile)) {
+            out.writeObject(profiler.getProfile());
+        }
+        ProtobufMessageProfile deserializedProfile;
+        try (
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedProfile.toByteArray()))
+        ) {
+            deserializedProfile = (ProtobufMessageProfile) in.readObject();
+        }
+
+        assertThat(generate(deserializedProfile)).isEqualTo(generate(profiler.getProfile()));
+    }
+
+    @Test
+    void shouldFollowSampleMessagesRecordedAfterGeneration() {
+        ProtobufMessageProfiler profiler = new ProtobufMessageProfiler();
+        profiler.record(Proto3Message.newBuilder().setSecondChoice("second").build());
+        Random random = new Random(123L);
+        OneofDescriptor oneof = Proto3Message.getDescriptor().getRealOneofs().get(0);
+
+        FieldDescriptor firstCase = profiler.getProfile().nextOneofCase(oneof, random);
+        profiler.record(Proto3Message.newBuilder().setFirstChoice(1).build());
+        profiler.record(Proto3Message.getDefaultInstance());
+
+        assertThat(firstCase.getName()).isEqualTo("secondChoice");
+        assertThat(profiler.getProfile().getPresenceProbability(oneof)).isCloseTo(2.0 / 3, within(0.001));
+        assertThat(IntStream.range(0, 100).mapToObj(i -> profiler.getProfile().nextOneofCase(oneof, random).getName()))
+            .contains("firstChoice", "secondChoice");
+    }
+
+    private static List<Proto3Message> sampleMessages() {
+        Random random = new Random(123L);
+        return IntStream
+            .range(0, SAMPLES_COUNT)
+            .mapToObj(i -> {
+                Proto3Message.Builder builder = Proto3Message
+                    .newBuilder()
+                    .setEnumField(i % 10 == 0 ? Proto3Enum.SECOND_VALUE : Proto3Enum.FIRST_VALUE)
+                    .setInt32Field(i % 2 == 0 ? 0 : 1 + random.nextInt(100))
+                    .setStringField(i % 2 == 0 ? "abc" : "abcd")
+                    .setBytesField(ByteString.copyFrom(new byte[1000 + random.nextInt(1000)]))
+                    .putMapField("key", Proto3Enum.FIRST_VALUE);
+                if (i % 4 == 0) {
+                    builder.setEmbeddedMessage(EmbeddedProto3Message.newBuilder().setStringField("embedded"));
+                }
+                if (i % 2 == 0) {
+                    builder.addRepeatedStringField("first").addRepeatedStringField("second");
+                }
+                if (i % 5 != 0) {
+                    builder.setSecondChoice("choice");
+                }
+                return builder.build();
+            })
+            .toList();
+    }
+
+    private static List<Proto3Message> generate(ProtobufMessageProfile profile) {
+        ProtobufParameters protobufParameters = new ProtobufParameters().messageProfile(profile);
+        ProtobufGenerationContext context = new ProtobufGenerationContext(
+            new EasyRandomParameters(),
+            protobufParameters
+        );
+        return context.nextBatch(Proto3Message.class, SAMPLES_COUNT);
+    }
+
+    private static double ratio(List<Proto3Message> messages, Predicate<Proto3Message> predicate) {
+        return (double) messages.stream().filter(predicate).count() / messages.size();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2020 Aurélien Mino (aurelien.mino@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.murdos.easyrandom.protobuf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.ByteString;
+import io.github.murdos.easyrandom.protobuf.testing.proto3.Proto3Message;
+import java.util.Random;
+import org.jeasy.random.EasyRandom;
+import org.jeasy.random.EasyRandomParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class Utf8StringGenerationTest {
+
+    @ParameterizedTest
+    @EnumSource(Utf8StringProfile.class)
+    void shouldGenerateValidUtf8StringsOfTheRequestedLength(Utf8StringProfile utf8StringProfile) {
+        Random random = new Random(123L);
+
+        for (int length = 0; length < 100; length++) {
+            ByteString utf8 = utf8StringProfile.randomUtf8(length, random);
+
+            assertThat(utf8.isValidUtf8()).isTrue();
+            assertThat(utf8.toStringUtf8().codePointCount(0, utf8.toStringUtf8().length())).isEqualTo(length);
+        }
+    }
+
+    @Test
+    void shouldGenerateAsciiStrings() {
+        Proto3Message protoInstance = newEasyRandom(Utf8StringProfile.ASCII).nextObject(Proto3Message.class);
+
+        assertThat(protoInstance.getStringField()).hasSizeBetween(5, 10).matches("\\p{Print}+");
+        assertThat(protoInstance.getStringFieldBytes().size()).isEqualTo(protoInstance.getStringField().length());
+        assertThat(protoInstance.getEmbeddedMessage().getStringField()).matches("\\p{Print}+");
+    }
+
+    @Test
+    void shouldGenerateMultiByteStrings() {
+        Proto3Message protoInstance = newEasyRandom(Utf8StringProfile.MULTI_BYTE).nextObject(Proto3Message.class);
+
+        assertThat(protoInstance.getStringFieldBytes().size()).isGreaterThan(protoInstance.getStringField().length());
+        assertThat(protoInstance.getRepeatedStringFieldList())
+            .isNotEmpty()
+            .allSatisfy(value -> assertThat(value).isNotBlank());
+        assertThat(protoInstance.getMapFieldMap().keySet())
+            .isNotEmpty()
+            .allSatisfy(key -> assertThat(key).isNotBlank());
+    }
+
+    @Test
+    void shouldGenerateStringsWithEmojis() {
+        Proto3Message protoInstance = newEasyRandom(Utf8StringProfile.EMOJI).nextObject(Proto3Message.class);
+
+        assertThat(protoInstance.getStringField().codePoints()).anyMatch(Character::isSupplementaryCodePoint);
+        assertThat(protoInstance.getStringValueField().getValue()).isNotEmpty();
+    }
+
+    private static EasyRandom newEasyRandom(Utf8StringProfile utf8StringProfile) {
+        return new EasyRandom(
+            new EasyRandomParameters()
+                .seed(123L)
+                .stringLengthRange(5, 10)
+                .randomizerRegistry(
+                    new ProtobufRandomizerRegistry(new ProtobufParameters().utf8StringProfile(utf8StringProfile))
+                )
+        );
+    }
+}